@@ -0,0 +1,109 @@
+package puzzles.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.EncodableConfiguration;
+import puzzles.common.solver.Solver;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The calls the solver makes on every configuration: getNeighbors(), hashCode(),
+ * equals() and isSolution(), and forEachNeighborKey() which the solver uses instead
+ * of getNeighbors() on keys. Each puzzle is measured on the configuration halfway
+ * along its solution, so the board is neither the start nor the goal. Puzzles
+ * without a solution are measured on their start.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigurationBenchmark {
+    @Param({"hoppers-5", "slide-3", "crossing-95-73", "strings-MARCH-APRIL"})
+    public String instance;
+
+    /** Configuration halfway along the solution */
+    private Configuration config;
+    /** Different object that is equal to config */
+    private Configuration same;
+    /** Neighbor of the configuration before config that isn't config */
+    private Configuration other;
+    /** Key of config */
+    private byte[] key;
+    /** Array the neighbor keys are written into */
+    private byte[] scratch;
+
+    @Setup
+    public void load() throws IOException {
+        List<Configuration> path = new Solver().solve(Puzzles.load(instance)).getPath();
+        if (path == null || path.size() < 2) {
+            config = Puzzles.load(instance);
+            same = Puzzles.load(instance);
+            other = config.getNeighbors().stream().findFirst().orElse(same);
+            writeKey();
+            return;
+        }
+        int middle = Math.max(1, path.size() / 2);
+        config = path.get(middle);
+
+        // Expanding the previous step again gives a fresh copy of config and its siblings
+        for (Configuration neighbor: path.get(middle - 1).getNeighbors()) {
+            if (neighbor.equals(config)) {
+                same = neighbor;
+            }
+            else {
+                other = neighbor;
+            }
+        }
+        if (other == null) {
+            other = path.get(middle - 1);
+        }
+        writeKey();
+    }
+
+    private void writeKey() {
+        EncodableConfiguration encodable = (EncodableConfiguration) config;
+        key = new byte[encodable.getKeyLength()];
+        scratch = new byte[key.length];
+        encodable.writeKey(key, 0);
+    }
+
+    @Benchmark
+    public Collection<Configuration> getNeighbors() {
+        return config.getNeighbors();
+    }
+
+    @Benchmark
+    public int neighborKeys(Blackhole blackhole) {
+        return ((EncodableConfiguration) config).forEachNeighborKey(key, 0, scratch, (neighbor, offset, solution) -> {
+            blackhole.consume(neighbor[offset]);
+            return true;
+        });
+    }
+
+    @Benchmark
+    public int hashCodeOf() {
+        return config.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsSame() {
+        return config.equals(same);
+    }
+
+    @Benchmark
+    public boolean equalsOther() {
+        return config.equals(other);
+    }
+
+    @Benchmark
+    public boolean isSolution() {
+        return config.isSolution();
+    }
+}
@@ -0,0 +1,29 @@
+package puzzles.benchmarks;
+
+import puzzles.batch.PuzzleInstances;
+import puzzles.common.solver.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Loads the puzzles the benchmarks run on. Instances are named like the files in
+ * output, e.g. hoppers-4, slide-3, crossing-95-73 and strings-CAT-DOG.
+ */
+final class Puzzles {
+    /** Folder holding data, set by the build since forks don't start in the project folder */
+    private static final Path ROOT = Path.of(System.getProperty("puzzles.root", "."));
+
+    private Puzzles() {
+    }
+
+    /**
+     * Makes the starting configuration of an instance
+     * @param instance The name of the instance
+     * @return the starting configuration
+     * @throws IOException if the puzzle file can't be read
+     */
+    static Configuration load(String instance) throws IOException {
+        return PuzzleInstances.load(ROOT, instance);
+    }
+}
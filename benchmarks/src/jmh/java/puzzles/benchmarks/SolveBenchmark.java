@@ -0,0 +1,44 @@
+package puzzles.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Solver;
+import puzzles.common.solver.SolverResult;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end solves of every puzzle in data/hoppers and data/slide, the crossing
+ * instances up to 95/73 and the strings cases in output/strings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class SolveBenchmark {
+    @Param({
+            "hoppers-0", "hoppers-1", "hoppers-2", "hoppers-3", "hoppers-4",
+            "hoppers-5", "hoppers-6", "hoppers-7", "hoppers-8", "hoppers-9",
+            "slide-0", "slide-1", "slide-2", "slide-3", "slide-4", "slide-5", "slide-6", "slide-7",
+            "crossing-0-1", "crossing-1-4", "crossing-2-0", "crossing-2-1", "crossing-3-2",
+            "crossing-8-5", "crossing-95-73",
+            "strings-AB-XD", "strings-ABC-BZD", "strings-B-!", "strings-B-Y",
+            "strings-CAT-DOG", "strings-MARCH-APRIL", "strings-P-U"
+    })
+    public String instance;
+
+    private Configuration start;
+
+    @Setup
+    public void load() throws IOException {
+        start = Puzzles.load(instance);
+    }
+
+    @Benchmark
+    public SolverResult solve() {
+        return new Solver().solve(start);
+    }
+}
@@ -0,0 +1,366 @@
+package puzzles.batch;
+
+import puzzles.common.solver.SolverResult;
+import puzzles.crossing.Crossing;
+import puzzles.crossing.CrossingConfig;
+import puzzles.hoppers.solver.Hoppers;
+import puzzles.slide.solver.Slide;
+import puzzles.strings.Strings;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Solves many puzzles at once, across every core, and writes each answer the same
+ * way its driver prints it. Puzzles are given as files, folders of files, globs like
+ * data/*&#47;hoppers-*.txt, or instance names like crossing-95-73 and strings-CAT-DOG for
+ * the puzzles without files.
+ * <pre>
+ * java BatchSolve [-o outDir] [-g goldenDir] [-j threads] [--exact] puzzle...
+ * </pre>
+ * With -o every answer is written to outDir/puzzle/name-out.txt, the layout of output.
+ * With -g every answer is checked against the golden file with the same name. The
+ * golden files came from an older solver, so by default only the number of moves and
+ * whether there is a solution are compared, --exact compares the text line by line.
+ */
+public class BatchSolve {
+    /**
+     * A puzzle to solve and the driver that writes its answer
+     */
+    private static final class Job {
+        private final String puzzle;
+        /** Name of the answer, the file name without .txt or the instance name */
+        private final String name;
+        /** The puzzle file, or the instance name for puzzles without files */
+        private final String source;
+
+        private Job(String puzzle, String name, String source) {
+            this.puzzle = puzzle;
+            this.name = name;
+            this.source = source;
+        }
+
+        /**
+         * Solves the puzzle with its driver
+         * @param out Where the answer is written
+         * @return the result of the solve
+         * @throws IOException if the puzzle file can't be read
+         */
+        private SolverResult solve(PrintWriter out) throws IOException {
+            switch (puzzle) {
+                case "hoppers":
+                    return Hoppers.solve(source, out);
+                case "slide":
+                    return Slide.solve(source, out);
+                case "crossing":
+                    String[] numbers = source.split("-");
+                    int capacity = numbers.length > 3 ? Integer.parseInt(numbers[3]) : CrossingConfig.DEFAULT_CAPACITY;
+                    return Crossing.solve(new CrossingConfig(Integer.parseInt(numbers[1]), Integer.parseInt(numbers[2]), capacity), out);
+                default:
+                    String[] words = source.split("-", 3);
+                    return Strings.solve(words[1], words[2], out);
+            }
+        }
+    }
+
+    /**
+     * What happened to one puzzle, a line of the summary
+     */
+    private static final class Row {
+        private final Job job;
+        private final SolverResult result;
+        private final long nanos;
+        /** Outcome of the golden check, null if nothing was checked */
+        private final String check;
+        private final boolean failed;
+
+        private Row(Job job, SolverResult result, long nanos, String check, boolean failed) {
+            this.job = job;
+            this.result = result;
+            this.nanos = nanos;
+            this.check = check;
+            this.failed = failed;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path outDir = null;
+        Path goldenDir = null;
+        boolean exact = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-o") && i + 1 < args.length) {
+                outDir = Path.of(args[++i]);
+            }
+            else if (args[i].equals("-g") && i + 1 < args.length) {
+                goldenDir = Path.of(args[++i]);
+            }
+            else if (args[i].equals("-j") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("--exact")) {
+                exact = true;
+            }
+            else {
+                inputs.add(args[i]);
+            }
+        }
+        if (inputs.isEmpty() || threads < 1) {
+            System.out.println("Usage: java BatchSolve [-o outDir] [-g goldenDir] [-j threads] [--exact] puzzle...");
+            return;
+        }
+
+        List<Job> jobs = new ArrayList<>();
+        try {
+            for (String input: inputs) {
+                jobs.addAll(jobsOf(input));
+            }
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.exit(2);
+        }
+
+        long begin = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Row> rows = new ArrayList<>();
+        try {
+            List<Future<Row>> futures = new ArrayList<>();
+            for (Job job: jobs) {
+                Path out = outDir;
+                Path golden = goldenDir;
+                boolean compareText = exact;
+                futures.add(pool.submit(() -> run(job, out, golden, compareText)));
+            }
+            for (Future<Row> future: futures) {
+                rows.add(future.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        long wall = System.nanoTime() - begin;
+
+        int failures = printSummary(rows, goldenDir != null);
+        long solving = rows.stream().mapToLong(row -> row.nanos).sum();
+        System.out.printf("%d puzzles on %d thread%s in %,d ms, %,d ms of solving, %d failed%n",
+                rows.size(), threads, threads == 1 ? "" : "s", wall / 1_000_000, solving / 1_000_000, failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Turns an argument into the puzzles it names
+     * @param input A file, a folder, a glob or an instance name
+     * @return the puzzles, in order of their paths
+     * @throws IOException if a folder can't be read
+     */
+    private static List<Job> jobsOf(String input) throws IOException {
+        List<Path> files;
+        if (input.chars().anyMatch(c -> "*?[{".indexOf(c) >= 0)) {
+            // Walks from the part of the glob before the first wildcard
+            String[] parts = input.split("/");
+            int fixed = 0;
+            while (fixed < parts.length - 1 && parts[fixed].chars().noneMatch(c -> "*?[{".indexOf(c) >= 0)) {
+                fixed++;
+            }
+            boolean relative = fixed == 0;
+            Path base = Path.of(relative ? "." : String.join("/", Arrays.copyOf(parts, fixed)));
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + input);
+            files = walk(base).stream().filter(file -> matcher.matches(relative ? base.relativize(file) : file))
+                    .collect(Collectors.toList());
+        }
+        else if (Files.isDirectory(Path.of(input))) {
+            files = walk(Path.of(input));
+        }
+        else if (Files.exists(Path.of(input))) {
+            files = List.of(Path.of(input));
+        }
+        else {
+            String puzzle = PuzzleInstances.puzzleOf(input);
+            if (!puzzle.equals("crossing") && !puzzle.equals("strings")) {
+                throw new IllegalArgumentException("No puzzle file " + input);
+            }
+            return List.of(new Job(puzzle, input, input));
+        }
+
+        List<Job> jobs = new ArrayList<>();
+        for (Path file: files) {
+            String name = file.getFileName().toString().replaceFirst("\\.txt$", "");
+            String puzzle = PuzzleInstances.puzzleOf(name);
+            if (!puzzle.equals("hoppers") && !puzzle.equals("slide") && file.getParent() != null) {
+                puzzle = file.getParent().getFileName().toString();
+            }
+            if (!puzzle.equals("hoppers") && !puzzle.equals("slide")) {
+                throw new IllegalArgumentException("Can't tell what puzzle " + file + " is");
+            }
+            jobs.add(new Job(puzzle, name, file.toString()));
+        }
+        return jobs;
+    }
+
+    private static List<Path> walk(Path base) throws IOException {
+        try (Stream<Path> paths = Files.walk(base)) {
+            return paths.filter(path -> Files.isRegularFile(path) && path.toString().endsWith(".txt"))
+                    .sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Solves one puzzle, writes its answer and checks it against its golden file
+     */
+    private static Row run(Job job, Path outDir, Path goldenDir, boolean exact) {
+        long begin = System.nanoTime();
+        StringWriter text = exact && goldenDir != null ? new StringWriter() : null;
+        SolverResult result;
+        try {
+            Writer target = Writer.nullWriter();
+            if (outDir != null) {
+                Path file = outDir.resolve(job.puzzle).resolve(job.name + "-out.txt");
+                Files.createDirectories(file.getParent());
+                target = Files.newBufferedWriter(file);
+            }
+            try (PrintWriter out = new PrintWriter(text == null ? target : new TeeWriter(target, text))) {
+                result = job.solve(out);
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            return new Row(job, null, System.nanoTime() - begin, "error: " + e.getMessage(), true);
+        }
+        long nanos = System.nanoTime() - begin;
+
+        if (goldenDir == null) {
+            return new Row(job, result, nanos, null, false);
+        }
+        Path golden = goldenDir.resolve(job.puzzle).resolve(job.name + "-out.txt");
+        if (!Files.exists(golden)) {
+            return new Row(job, result, nanos, "no golden file", false);
+        }
+        try {
+            List<String> expected = Files.readAllLines(golden);
+            String problem = exact ? firstDifference(expected, text.toString().lines().collect(Collectors.toList()))
+                    : differentMoves(expected, result);
+            return new Row(job, result, nanos, problem == null ? "ok" : problem, problem != null);
+        }
+        catch (IOException e) {
+            return new Row(job, result, nanos, "error: " + e.getMessage(), true);
+        }
+    }
+
+    /**
+     * Compares the number of moves of a solve with the golden file
+     * @return what differs, null if nothing does
+     */
+    private static String differentMoves(List<String> expected, SolverResult result) {
+        int moves = PuzzleInstances.movesIn(expected);
+        int found = result.isSolved() ? result.getPath().size() - 1 : PuzzleInstances.NO_SOLUTION;
+        if (moves == found) {
+            return null;
+        }
+        return moves == PuzzleInstances.NO_SOLUTION ? "golden has no solution" : "golden has " + moves + " moves";
+    }
+
+    /**
+     * Compares an answer with the golden file line by line, ignoring trailing spaces and blank lines at the end
+     * @return the first line that differs, null if none do
+     */
+    private static String firstDifference(List<String> expected, List<String> actual) {
+        List<String> want = trimmed(expected);
+        List<String> got = trimmed(actual);
+        for (int i = 0; i < Math.max(want.size(), got.size()); i++) {
+            String a = i < want.size() ? want.get(i) : "<end>";
+            String b = i < got.size() ? got.get(i) : "<end>";
+            if (!a.equals(b)) {
+                return "line " + (i + 1) + ": golden \"" + a + "\", got \"" + b + "\"";
+            }
+        }
+        return null;
+    }
+
+    private static List<String> trimmed(List<String> lines) {
+        List<String> result = new ArrayList<>();
+        for (String line: lines) {
+            result.add(line.stripTrailing());
+        }
+        while (!result.isEmpty() && result.get(result.size() - 1).isEmpty()) {
+            result.remove(result.size() - 1);
+        }
+        return result;
+    }
+
+    /**
+     * Prints a line for every puzzle
+     * @return the number of puzzles that failed
+     */
+    private static int printSummary(List<Row> rows, boolean checked) {
+        int width = Math.max(8, rows.stream().mapToInt(row -> row.job.name.length()).max().orElse(0));
+        String format = "%-" + width + "s %7s %14s %14s %10s %14s%s%n";
+        System.out.printf(format, "puzzle", "moves", "total", "unique", "ms", "configs/s", checked ? "  golden" : "");
+        int failures = 0;
+        for (Row row: rows) {
+            String check = row.check == null ? "" : "  " + row.check;
+            if (row.result == null) {
+                System.out.printf(format, row.job.name, "-", "-", "-",
+                        String.format("%,.1f", row.nanos / 1e6), "-", check);
+            }
+            else {
+                System.out.printf(format, row.job.name,
+                        row.result.isSolved() ? String.valueOf(row.result.getPath().size() - 1) : "none",
+                        String.format("%,d", row.result.getStats().getGenerated()),
+                        String.format("%,d", row.result.getStats().getUnique()),
+                        String.format("%,.1f", row.nanos / 1e6),
+                        String.format("%,.0f", row.result.getStats().getConfigsPerSecond()), check);
+            }
+            if (row.failed) {
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Writer that writes everything to two writers
+     */
+    private static final class TeeWriter extends Writer {
+        private final Writer first;
+        private final Writer second;
+
+        private TeeWriter(Writer first, Writer second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            first.write(chars, offset, length);
+            second.write(chars, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            first.flush();
+            second.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            first.close();
+            second.close();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package puzzles.batch;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Solver;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Stress test for solving many puzzles at the same time. Every instance with a golden
+ * file is first solved alone and checked against the golden file, then all of them are
+ * loaded and solved again in a shuffled order on a pool of threads. Each of those solves
+ * has to give the same path as the one solved alone, so nothing a puzzle keeps can leak
+ * into another puzzle being solved next to it.
+ */
+public class ConcurrencyStress {
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Path root = Path.of(args.length > 2 ? args[2] : ".");
+        if (rounds < 1 || threads < 1) {
+            System.out.println("Usage: java ConcurrencyStress [rounds] [threads] [root]");
+            return;
+        }
+
+        // Finding nothing to solve is a failure too, or a missing output folder would pass
+        List<String> instances = PuzzleInstances.withGoldens(root);
+        if (instances.isEmpty()) {
+            System.out.println("FAIL no golden files in " + root.resolve("output"));
+            System.exit(1);
+        }
+
+        // Solves every instance alone first
+        Map<String, List<Configuration>> expected = new HashMap<>();
+        int failures = 0;
+        for (String instance: instances) {
+            List<Configuration> path = new Solver().solve(PuzzleInstances.load(root, instance)).getPath();
+            expected.put(instance, path);
+            String problem = PuzzleInstances.checkPath(root, instance, path);
+            if (problem != null) {
+                System.out.println("FAIL " + instance + ": " + problem);
+                failures++;
+            }
+        }
+
+        // Then all of them at the same time, several of each so puzzles of one kind overlap too
+        List<String> jobs = new ArrayList<>();
+        for (int r = 0; r < rounds; r++) {
+            jobs.addAll(instances);
+        }
+        Collections.shuffle(jobs, new Random(rounds));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long begin = System.nanoTime();
+        try {
+            List<Future<List<Configuration>>> results = new ArrayList<>();
+            for (String job: jobs) {
+                results.add(pool.submit(() -> new Solver().solve(PuzzleInstances.load(root, job)).getPath()));
+            }
+            for (int i = 0; i < jobs.size(); i++) {
+                List<Configuration> path = results.get(i).get();
+                if (!Objects.equals(path, expected.get(jobs.get(i)))) {
+                    System.out.println("FAIL " + jobs.get(i) + ": solved in parallel to a different path");
+                    failures++;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        long millis = (System.nanoTime() - begin) / 1_000_000;
+
+        System.out.printf("%d instances, %d parallel solves on %d threads in %,d ms, %d failures%n",
+                instances.size(), jobs.size(), threads, millis, failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
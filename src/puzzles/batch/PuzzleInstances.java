@@ -0,0 +1,155 @@
+package puzzles.batch;
+
+import puzzles.common.solver.Configuration;
+import puzzles.crossing.CrossingConfig;
+import puzzles.hoppers.model.HoppersConfig;
+import puzzles.slide.model.SlideConfig;
+import puzzles.strings.StringsConfig;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Loads puzzles by the names of their files in output, e.g. hoppers-4, slide-3,
+ * crossing-95-73 and strings-CAT-DOG, and reads what their golden files expect.
+ * A crossing can be given a boat capacity as a third number, e.g. crossing-8-5-3.
+ */
+public final class PuzzleInstances {
+    /** Ending of every golden file */
+    private static final String GOLDEN_SUFFIX = "-out.txt";
+    /** Expected number of moves of a golden file without a solution */
+    public static final int NO_SOLUTION = -1;
+
+    private PuzzleInstances() {
+    }
+
+    /**
+     * Makes the starting configuration of an instance
+     * @param root Folder holding data and output
+     * @param instance The name of the instance
+     * @return the starting configuration
+     * @throws IOException if the puzzle file can't be read
+     */
+    public static Configuration load(Path root, String instance) throws IOException {
+        String puzzle = puzzleOf(instance);
+        switch (puzzle) {
+            case "hoppers":
+                return new HoppersConfig(root.resolve("data").resolve(puzzle).resolve(instance + ".txt").toString());
+            case "slide":
+                return new SlideConfig(root.resolve("data").resolve(puzzle).resolve(instance + ".txt").toString());
+            case "crossing":
+                String[] numbers = instance.split("-");
+                int capacity = numbers.length > 3 ? Integer.parseInt(numbers[3]) : CrossingConfig.DEFAULT_CAPACITY;
+                return new CrossingConfig(Integer.parseInt(numbers[1]), Integer.parseInt(numbers[2]), capacity);
+            case "strings":
+                // The end string may hold any character but a dash
+                String[] words = instance.split("-", 3);
+                return new StringsConfig(words[1], words[2]);
+            default:
+                throw new IllegalArgumentException("Unknown puzzle " + instance);
+        }
+    }
+
+    /**
+     * Gets the kind of puzzle of an instance
+     * @param instance The name of the instance
+     * @return hoppers, slide, crossing or strings
+     */
+    public static String puzzleOf(String instance) {
+        int dash = instance.indexOf('-');
+        return dash < 0 ? instance : instance.substring(0, dash);
+    }
+
+    /**
+     * Gets the golden file of an instance
+     * @param root Folder holding data and output
+     * @param instance The name of the instance
+     * @return path of the golden file, which may not exist
+     */
+    public static Path golden(Path root, String instance) {
+        return root.resolve("output").resolve(puzzleOf(instance)).resolve(instance + GOLDEN_SUFFIX);
+    }
+
+    /**
+     * Lists every instance that has a golden file, the PTUI transcripts left out.
+     * Links are followed, so output may be a link to the golden files.
+     * @param root Folder holding data and output
+     * @return the names of the instances in order
+     * @throws IOException if the output folder can't be read
+     */
+    public static List<String> withGoldens(Path root) throws IOException {
+        List<String> instances = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root.resolve("output"), FileVisitOption.FOLLOW_LINKS)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(GOLDEN_SUFFIX) && !name.endsWith("-ptui" + GOLDEN_SUFFIX))
+                    .forEach(name -> instances.add(name.substring(0, name.length() - GOLDEN_SUFFIX.length())));
+        }
+        Collections.sort(instances);
+        return instances;
+    }
+
+    /**
+     * Checks a path against the golden file of its instance. The path has to start at the
+     * start, take one move at a time, end at a solution and be as long as the golden one.
+     * @param root Folder holding data and output
+     * @param instance The name of the instance
+     * @param path The path that was found, null if there is none
+     * @return what is wrong with the path, null if nothing is
+     * @throws IOException if the puzzle or golden file can't be read
+     */
+    public static String checkPath(Path root, String instance, List<Configuration> path) throws IOException {
+        int moves = goldenMoves(root, instance);
+        if (path == null) {
+            return moves == NO_SOLUTION ? null : "no solution, golden file has " + moves + " moves";
+        }
+        if (path.size() - 1 != moves) {
+            return path.size() - 1 + " moves, golden file has "
+                    + (moves == NO_SOLUTION ? "no solution" : moves + " moves");
+        }
+        if (!path.get(0).equals(load(root, instance))) {
+            return "path doesn't begin at the start";
+        }
+        for (int i = 1; i < path.size(); i++) {
+            if (!path.get(i - 1).getNeighbors().contains(path.get(i))) {
+                return "step " + i + " isn't a single move";
+            }
+        }
+        if (!path.get(path.size() - 1).isSolution()) {
+            return "path doesn't end at a solution";
+        }
+        return null;
+    }
+
+    /**
+     * Reads how many moves the golden file of an instance takes. The counts of configs in
+     * the golden files depend on the solver, so only the length of the path is compared.
+     * @param root Folder holding data and output
+     * @param instance The name of the instance
+     * @return number of moves, NO_SOLUTION if the golden file has none
+     * @throws IOException if the golden file can't be read
+     */
+    public static int goldenMoves(Path root, String instance) throws IOException {
+        return movesIn(Files.readAllLines(golden(root, instance)));
+    }
+
+    /**
+     * Counts the moves of an answer written by one of the drivers
+     * @param lines The lines of the answer
+     * @return number of moves, NO_SOLUTION if the answer has no steps
+     */
+    public static int movesIn(List<String> lines) {
+        int steps = 0;
+        for (String line: lines) {
+            if (line.startsWith("Step ")) {
+                steps++;
+            }
+        }
+        return steps == 0 ? NO_SOLUTION : steps - 1;
+    }
+}
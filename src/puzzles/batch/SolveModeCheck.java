@@ -0,0 +1,134 @@
+package puzzles.batch;
+
+import puzzles.common.solver.Checkpoints;
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.EncodableConfiguration;
+import puzzles.common.solver.Heuristic;
+import puzzles.common.solver.InformedSolver;
+import puzzles.common.solver.SolveLimits;
+import puzzles.common.solver.Solver;
+import puzzles.common.solver.SolverResult;
+import puzzles.hoppers.model.HoppersConfig;
+import puzzles.hoppers.model.HoppersHeuristic;
+import puzzles.slide.model.SlideConfig;
+import puzzles.slide.model.SlidePatternHeuristic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+
+/**
+ * Solves every instance that has a golden file with each of the other solve modes and
+ * checks every path against the golden file, the same as ConcurrencyStress does for the
+ * regular solve. The bounded solve gets a budget small enough to spill to disk, and the
+ * checkpointed solve is stopped several times and picked up again from its
+ * snapshot until it finishes, so the resume is run as well.
+ */
+public class SolveModeCheck {
+    /** Bytes the bounded solve may keep in memory before it spills */
+    private static final long SPILL_BUDGET = 16 * 1024;
+    /** Expansions the checkpointed solve is allowed the first time, twice as many each time after */
+    private static final long CHECKPOINT_ROUND = 5_000;
+    /** Threads of the parallel solve */
+    private static final int THREADS = 4;
+
+    public static void main(String[] args) throws Exception {
+        Path root = Path.of(args.length > 0 ? args[0] : ".");
+        List<String> instances = PuzzleInstances.withGoldens(root);
+        if (instances.isEmpty()) {
+            System.out.println("FAIL no golden files in " + root.resolve("output"));
+            System.exit(1);
+        }
+
+        Path scratch = Files.createTempDirectory("solve-modes");
+        int solves = 0;
+        int failures = 0;
+        long begin = System.nanoTime();
+        try {
+            for (String instance: instances) {
+                Configuration start = PuzzleInstances.load(root, instance);
+                for (Map.Entry<String, Callable<List<Configuration>>> mode: modesOf(start, instance, scratch).entrySet()) {
+                    String problem;
+                    try {
+                        problem = PuzzleInstances.checkPath(root, instance, mode.getValue().call());
+                    }
+                    catch (Exception e) {
+                        problem = "threw " + e;
+                    }
+                    solves++;
+                    if (problem != null) {
+                        System.out.println("FAIL " + instance + " " + mode.getKey() + ": " + problem);
+                        failures++;
+                    }
+                }
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(scratch)) {
+                for (Path file: files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        long millis = (System.nanoTime() - begin) / 1_000_000;
+
+        System.out.printf("%d instances, %d solves in %,d ms, %d failures%n", instances.size(), solves, millis, failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Gets every mode an instance can be solved with, besides the regular solve
+     * @param start The starting configuration of the instance
+     * @param instance The name of the instance
+     * @param scratch Folder for spill files and snapshots
+     * @return each mode by name, giving the path it found
+     */
+    private static Map<String, Callable<List<Configuration>>> modesOf(Configuration start, String instance, Path scratch) {
+        Map<String, Callable<List<Configuration>>> modes = new LinkedHashMap<>();
+        modes.put("bidirectional", () -> new Solver().solveBidirectional(start).getPath());
+        modes.put("parallel", () -> new Solver().solveParallel(start, THREADS).getPath());
+        modes.put("bounded", () -> new Solver().solveBounded(start, SPILL_BUDGET, scratch).getPath());
+        modes.put("frontier", () -> new Solver().solveFrontier(start).getPath());
+        if (start instanceof EncodableConfiguration encodable) {
+            modes.put("checkpointed", () -> resumed(encodable, scratch.resolve(instance + ".checkpoint")));
+        }
+        if (start instanceof SlideConfig slide) {
+            Heuristic heuristic = SlidePatternHeuristic.forPuzzle(slide);
+            modes.put("astar", () -> new InformedSolver().aStar(start, heuristic).getPath());
+            modes.put("idastar", () -> new InformedSolver().idaStar(start, heuristic).getPath());
+        }
+        else if (start instanceof HoppersConfig) {
+            modes.put("astar", () -> new InformedSolver().aStar(start, new HoppersHeuristic()).getPath());
+        }
+        return modes;
+    }
+
+    /**
+     * Solves with checkpoints, stopping each time twice as far in as the last and carrying
+     * on from the snapshot it left
+     * @param start The starting configuration of the instance
+     * @param file Where the snapshots are written
+     * @return the path that was found, null if there is none
+     * @throws IOException if a snapshot is left behind once the solve is finished
+     */
+    private static List<Configuration> resumed(EncodableConfiguration start, Path file) throws IOException {
+        Checkpoints checkpoints = Checkpoints.to(file).withExpansions(CHECKPOINT_ROUND / 2);
+        long budget = CHECKPOINT_ROUND;
+        SolverResult result = new Solver().solveCheckpointed(start, checkpoints, SolveLimits.NONE.withMaxExpansions(budget));
+        while (!result.isComplete()) {
+            budget *= 2;
+            result = new Solver().solveCheckpointed(start, checkpoints, SolveLimits.NONE.withMaxExpansions(budget));
+        }
+        if (Files.exists(file)) {
+            throw new IOException("the snapshot was left behind");
+        }
+        return result.getPath();
+    }
+}
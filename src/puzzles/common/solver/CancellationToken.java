@@ -0,0 +1,21 @@
+package puzzles.common.solver;
+
+/**
+ * Lets one thread ask a solve running on another thread to stop. A token stays
+ * cancelled once it is cancelled, so every solve needs its own token.
+ */
+public class CancellationToken {
+    /** Set once the solve is asked to stop */
+    private volatile boolean cancelled;
+
+    /**
+     * Asks every solve using this token to stop at its next expansion
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
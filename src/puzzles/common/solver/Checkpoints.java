@@ -0,0 +1,93 @@
+package puzzles.common.solver;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Where and how often a long solve writes snapshots of its search, so it can be
+ * picked up again after the process dies. A snapshot is written once enough time or
+ * enough expansions have gone by since the last one, whichever comes first.
+ * Checkpoints never change, the with methods make new ones.
+ */
+public class Checkpoints {
+    /** How often snapshots are written if nothing else is asked for */
+    public static final Duration DEFAULT_INTERVAL = Duration.ofMinutes(1);
+
+    /** The file the snapshot is kept in */
+    private final Path file;
+    /** Nanoseconds between snapshots */
+    private final long intervalNanos;
+    /** Expansions between snapshots */
+    private final long intervalExpansions;
+
+    private Checkpoints(Path file, long intervalNanos, long intervalExpansions) {
+        this.file = file;
+        this.intervalNanos = intervalNanos;
+        this.intervalExpansions = intervalExpansions;
+    }
+
+    /**
+     * Makes checkpoints that write a snapshot to a file every DEFAULT_INTERVAL
+     * @param file The file the snapshot is kept in, replaced each time
+     * @return the new checkpoints
+     */
+    public static Checkpoints to(Path file) {
+        return new Checkpoints(file, DEFAULT_INTERVAL.toNanos(), Long.MAX_VALUE);
+    }
+
+    /**
+     * Makes checkpoints for a puzzle file from the puzzles.checkpoint property, which
+     * names the folder snapshots are kept in. The puzzles.checkpoint.seconds and
+     * puzzles.checkpoint.expansions properties set how often they are written.
+     * @param puzzleFile The file the puzzle was read from, which names its snapshot
+     * @return the checkpoints, null if the property isn't set
+     */
+    public static Checkpoints forPuzzle(String puzzleFile) {
+        String folder = System.getProperty("puzzles.checkpoint");
+        if (folder == null) {
+            return null;
+        }
+        Checkpoints checkpoints = to(Path.of(folder).resolve(Path.of(puzzleFile).getFileName() + ".checkpoint"));
+        String seconds = System.getProperty("puzzles.checkpoint.seconds");
+        if (seconds != null) {
+            checkpoints = checkpoints.withInterval(Duration.ofSeconds(Long.parseLong(seconds)));
+        }
+        String expansions = System.getProperty("puzzles.checkpoint.expansions");
+        if (expansions != null) {
+            checkpoints = checkpoints.withExpansions(Long.parseLong(expansions));
+        }
+        return checkpoints;
+    }
+
+    /**
+     * Makes checkpoints that write a snapshot once an amount of time has gone by
+     * @param interval The time between snapshots
+     * @return the new checkpoints
+     */
+    public Checkpoints withInterval(Duration interval) {
+        return new Checkpoints(file, interval.toNanos(), intervalExpansions);
+    }
+
+    /**
+     * Makes checkpoints that write a snapshot once a number of configurations were expanded
+     * @param expansions The expansions between snapshots
+     * @return the new checkpoints
+     */
+    public Checkpoints withExpansions(long expansions) {
+        return new Checkpoints(file, intervalNanos, expansions);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Checks to see if it is time for another snapshot
+     * @param sinceNanos Nanoseconds since the last snapshot
+     * @param sinceExpansions Expansions since the last snapshot
+     * @return T/F value for if a snapshot should be written
+     */
+    boolean isDue(long sinceNanos, long sinceExpansions) {
+        return sinceNanos >= intervalNanos || sinceExpansions >= intervalExpansions;
+    }
+}
@@ -0,0 +1,27 @@
+package puzzles.common.solver;
+
+/**
+ * Optional extension of an encodable configuration whose moves often don't touch
+ * each other. Two such moves lead to the same configuration in either order, so a
+ * breadth first search makes it twice. Given the configuration a key was reached
+ * from, the puzzle can leave out the moves that only repeat what the other order
+ * already makes. It may also leave out moves into configurations it knows can't reach a
+ * goal, since only the search uses it. Every other configuration is still reached at
+ * the same depth.
+ */
+public interface CommutingConfiguration extends EncodableConfiguration {
+    /**
+     * Makes the keys of the neighbors of a configuration that was reached from another
+     * one in a single move, leaving out each move that doesn't touch that move and comes
+     * before it in the puzzle's order of moves, and any move into a configuration that
+     * can't reach a goal
+     * @param parent array holding the key of the configuration it was reached from
+     * @param parentOffset position of the first byte of the parent key
+     * @param key array holding the key of the configuration to expand
+     * @param offset position of the first byte of the key
+     * @param scratch array of at least getKeyLength() bytes the neighbor keys are written into
+     * @param visitor what is done with each neighbor
+     * @return the number of neighbors handed to the visitor
+     */
+    int forEachNeighborKey(byte[] parent, int parentOffset, byte[] key, int offset, byte[] scratch, NeighborVisitor visitor);
+}
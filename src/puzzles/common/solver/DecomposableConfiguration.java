@@ -0,0 +1,26 @@
+package puzzles.common.solver;
+
+import java.util.List;
+
+/**
+ * Optional extension of a configuration made of independent parts. Every move
+ * changes exactly one part and no part limits the moves of another, so a shortest
+ * path is found by solving each part on its own and making their moves one part
+ * after another.
+ */
+public interface DecomposableConfiguration extends Configuration {
+    /**
+     * Gets the parts of the configuration as puzzles of their own. The configuration
+     * is a solution exactly when every part is.
+     * @return the parts in a fixed order
+     */
+    List<Configuration> getComponents();
+
+    /**
+     * Makes the configuration with one part changed
+     * @param index The position of the part in getComponents()
+     * @param component The new state of the part
+     * @return the configuration with the part changed
+     */
+    DecomposableConfiguration withComponent(int index, Configuration component);
+}
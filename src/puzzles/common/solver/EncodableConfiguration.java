@@ -0,0 +1,74 @@
+package puzzles.common.solver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Optional extension of a configuration that can be written as a fixed length key
+ * of bytes and rebuilt from it. Solvers that keep millions of states use it to
+ * store keys instead of configuration objects, and to go from a key straight to
+ * the keys of its neighbors without making any configurations.
+ */
+public interface EncodableConfiguration extends Configuration {
+    /**
+     * Receives the key of each neighbor as it is made
+     */
+    @FunctionalInterface
+    interface NeighborVisitor {
+        /**
+         * Looks at one neighbor
+         * @param key array holding the key of the neighbor, only valid during the call
+         * @param offset position of the first byte of the key
+         * @param solution T/F value for if the neighbor is a solution
+         * @return T/F value for if the rest of the neighbors should be made
+         */
+        boolean visit(byte[] key, int offset, boolean solution);
+    }
+
+    /**
+     * Gets the length of the key, which is the same for every configuration of a puzzle
+     * @return number of bytes in a key
+     */
+    int getKeyLength();
+
+    /**
+     * Writes the key of this configuration. Two configurations have the same key
+     * exactly when they are equal.
+     * @param key array the key is written into
+     * @param offset position of the first byte of the key
+     */
+    void writeKey(byte[] key, int offset);
+
+    /**
+     * Rebuilds a configuration of the same puzzle from its key
+     * @param key array holding the key
+     * @param offset position of the first byte of the key
+     * @return the configuration the key was written from
+     */
+    Configuration fromKey(byte[] key, int offset);
+
+    /**
+     * Makes the keys of the neighbors of a configuration of the same puzzle, in the
+     * same order getNeighbors() gives them, without making any configurations.
+     * @param key array holding the key of the configuration to expand
+     * @param offset position of the first byte of the key
+     * @param scratch array of at least getKeyLength() bytes the neighbor keys are written into
+     * @param visitor what is done with each neighbor
+     * @return the number of neighbors handed to the visitor
+     */
+    int forEachNeighborKey(byte[] key, int offset, byte[] scratch, NeighborVisitor visitor);
+
+    /**
+     * Gets the neighbors as configurations, built from the neighbor keys
+     * @return collection of all the neighbors
+     */
+    @Override
+    default Collection<Configuration> getNeighbors() {
+        byte[] key = new byte[getKeyLength()];
+        writeKey(key, 0);
+        List<Configuration> neighbors = new ArrayList<>();
+        forEachNeighborKey(key, 0, new byte[key.length], (neighbor, offset, solution) -> neighbors.add(fromKey(neighbor, offset)));
+        return neighbors;
+    }
+}
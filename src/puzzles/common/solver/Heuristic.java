@@ -0,0 +1,18 @@
+package puzzles.common.solver;
+
+/**
+ * An estimate of how many moves are left from a configuration to a solution.
+ * InformedSolver only promises a shortest path when the estimate never goes
+ * over the real number of moves (the heuristic is admissible).
+ */
+public interface Heuristic {
+    /** Estimate of a configuration that can't reach a solution, small enough that adding moves to it can't overflow */
+    int UNSOLVABLE = Integer.MAX_VALUE / 2;
+
+    /**
+     * Estimates the number of moves left to reach a solution
+     * @param config The configuration being estimated
+     * @return lower bound on the number of moves to a solution, UNSOLVABLE if there is none
+     */
+    int estimate(Configuration config);
+}
@@ -0,0 +1,31 @@
+package puzzles.common.solver;
+
+/**
+ * Optional extension of an encodable configuration whose puzzle has few enough
+ * configurations to number every one of them. Each key maps to its own index below
+ * getIndexCount(), so solvers can keep the visited set and the parents in flat
+ * arrays indexed directly instead of in a hash table.
+ */
+public interface IndexedConfiguration extends EncodableConfiguration {
+    /**
+     * Gets the number of indices, every configuration of the puzzle has an index below it
+     * @return number of indices
+     */
+    long getIndexCount();
+
+    /**
+     * Gets the index of a key
+     * @param key array holding the key
+     * @param offset position of the first byte of the key
+     * @return index of the key, -1 if the key isn't a configuration of the puzzle
+     */
+    int indexOf(byte[] key, int offset);
+
+    /**
+     * Writes the key of an index
+     * @param index The index of a configuration
+     * @param key array the key is written into
+     * @param offset position of the first byte of the key
+     */
+    void writeKeyOf(int index, byte[] key, int offset);
+}
@@ -0,0 +1,258 @@
+package puzzles.common.solver;
+
+import java.util.*;
+
+/**
+ * Solver that uses a heuristic to steer the search toward the solution.
+ * A* keeps every configuration it has seen, IDA* only keeps the current path.
+ */
+public class InformedSolver {
+    /** The counters of the current solve, or of the last one once it is finished */
+    private volatile SolverStats stats = new SolverStats();
+
+    /** Marks the IDA* search as finished */
+    private static final int FOUND = -1;
+    /** Marks the IDA* search as stopped by one of its limits */
+    private static final int STOPPED = -2;
+
+    /**
+     * Entry in the A* open list
+     * @param config The configuration waiting to be expanded
+     * @param cost The number of moves from the start
+     * @param estimate The cost plus the heuristic estimate
+     */
+    private record Node(Configuration config, int cost, int estimate) {}
+
+    /**
+     * Solve method that uses A* to solve any simple puzzle
+     * @param start The starting configuration of the puzzle
+     * @param heuristic The estimate of the moves left from a configuration
+     * @return The path to solution and the counters of the solve
+     */
+    public SolverResult aStar(Configuration start, Heuristic heuristic){
+        return aStar(start, heuristic, SolveLimits.NONE);
+    }
+
+    /**
+     * Solve method that uses A* and stops early once any of its limits is reached
+     * @param start The starting configuration of the puzzle
+     * @param heuristic The estimate of the moves left from a configuration
+     * @param limits The deadline, expansion budget and cancellation token of the solve
+     * @return The path to solution, or why the solve stopped and how far it got
+     */
+    public SolverResult aStar(Configuration start, Heuristic heuristic, SolveLimits limits){
+        SolverStats stats = begin();
+        if (heuristic.estimate(start) >= Heuristic.UNSOLVABLE){
+            return end(null, stats);
+        }
+
+        // Predecessor map, best known cost map and open list
+        // Ties on the estimate go to the deeper configuration
+        Map<Configuration,Configuration> predecessor = new HashMap<>();
+        Map<Configuration,Integer> costs = new HashMap<>();
+        PriorityQueue<Node> toVisit = new PriorityQueue<>((a, b) -> a.estimate != b.estimate ?
+                Integer.compare(a.estimate, b.estimate) : Integer.compare(b.cost, a.cost));
+
+        predecessor.put(start, null);
+        costs.put(start, 0);
+        toVisit.offer(new Node(start, 0, heuristic.estimate(start)));
+
+        while (!toVisit.isEmpty()){
+            Node current = toVisit.remove();
+
+            // Skips entries that were beaten by a cheaper path after being queued
+            if (current.cost > costs.get(current.config)){
+                continue;
+            }
+            if (current.config.isSolution()){
+                return end(buildPath(predecessor, current.config), stats);
+            }
+            StopReason reason = limits.check(stats.getExpanded());
+            if (reason != null){
+                return stop(reason, stats);
+            }
+
+            Collection<Configuration> neighbors = current.config.getNeighbors();
+            stats.expanded();
+            stats.generated(neighbors.size());
+            for (Configuration config: neighbors){
+                int cost = current.cost + 1;
+                Integer known = costs.get(config);
+                if (known == null || cost < known){
+                    if (known == null){
+                        stats.unique(1);
+                    }
+                    costs.put(config, cost);
+                    predecessor.put(config, current.config);
+                    int estimate = heuristic.estimate(config);
+                    if (estimate < Heuristic.UNSOLVABLE){
+                        toVisit.offer(new Node(config, cost, cost + estimate));
+                    }
+                }
+            }
+            stats.frontier(toVisit.size());
+            stats.visited(costs.size());
+        }
+        return end(null, stats);
+    }
+
+    /**
+     * Solve method that uses iterative deepening A*, which only keeps the current path in memory
+     * @param start The starting configuration of the puzzle
+     * @param heuristic The estimate of the moves left from a configuration
+     * @return The path to solution and the counters of the solve
+     */
+    public SolverResult idaStar(Configuration start, Heuristic heuristic){
+        return idaStar(start, heuristic, SolveLimits.NONE);
+    }
+
+    /**
+     * Solve method that uses iterative deepening A* and stops early once any of its limits is reached
+     * @param start The starting configuration of the puzzle
+     * @param heuristic The estimate of the moves left from a configuration
+     * @param limits The deadline, expansion budget and cancellation token of the solve
+     * @return The path to solution, or why the solve stopped and how far it got
+     */
+    public SolverResult idaStar(Configuration start, Heuristic heuristic, SolveLimits limits){
+        SolverStats stats = begin();
+        LinkedList<Configuration> path = new LinkedList<>();
+        Set<Configuration> onPath = new HashSet<>();
+        path.add(start);
+        onPath.add(start);
+
+        // Each pass searches every path whose estimate fits under the bound
+        // The next bound is the smallest estimate that didn't fit
+        // A board the heuristic knows can't be solved would otherwise deepen forever
+        int bound = heuristic.estimate(start);
+        if (bound >= Heuristic.UNSOLVABLE){
+            return end(null, stats);
+        }
+        while (true){
+            int next = search(path, onPath, 0, bound, heuristic, limits, stats);
+            if (next == FOUND){
+                return end(path, stats);
+            }
+            if (next == STOPPED){
+                // Limits only ever get closer, so checking again gives the same reason
+                return stop(limits.check(stats.getExpanded()), stats);
+            }
+            if (next >= Heuristic.UNSOLVABLE){
+                return end(null, stats);
+            }
+            bound = next;
+        }
+    }
+
+    /**
+     * Depth first search from the end of the path that gives up once the estimate passes the bound
+     * @param path The current path, with the configuration being searched last
+     * @param onPath The configurations on the current path, used to skip cycles
+     * @param cost The number of moves made along the path
+     * @param bound The largest estimate allowed in this pass
+     * @param heuristic The estimate of the moves left from a configuration
+     * @param limits The deadline, expansion budget and cancellation token of the solve
+     * @param stats The counters of the solve
+     * @return FOUND if the path now ends at a solution, STOPPED if a limit was reached,
+     *         otherwise the smallest estimate over the bound
+     */
+    private static int search(LinkedList<Configuration> path, Set<Configuration> onPath, int cost, int bound,
+                              Heuristic heuristic, SolveLimits limits, SolverStats stats){
+        Configuration current = path.getLast();
+        int estimate = cost + heuristic.estimate(current);
+        if (estimate > bound){
+            return estimate;
+        }
+        if (current.isSolution()){
+            return FOUND;
+        }
+
+        if (limits.check(stats.getExpanded()) != null){
+            return STOPPED;
+        }
+
+        int min = Integer.MAX_VALUE;
+        Collection<Configuration> neighbors = current.getNeighbors();
+        stats.expanded();
+        stats.generated(neighbors.size());
+        for (Configuration config: neighbors){
+            if (!onPath.contains(config)){
+                stats.unique(1);
+                path.addLast(config);
+                onPath.add(config);
+                stats.frontier(path.size());
+                int result = search(path, onPath, cost + 1, bound, heuristic, limits, stats);
+                if (result == FOUND || result == STOPPED){
+                    return result;
+                }
+                min = Math.min(min, result);
+                onPath.remove(path.removeLast());
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Walks the predecessor map back from the goal to build the path
+     * @param predecessor The predecessor map of the search
+     * @param goal The solution that was found
+     * @return List representation of the path to solution
+     */
+    private static List<Configuration> buildPath(Map<Configuration,Configuration> predecessor, Configuration goal){
+        List<Configuration> path = new LinkedList<>();
+        Configuration configuration = goal;
+        while (configuration != null) {
+            path.add(0, configuration);
+            configuration = predecessor.get(configuration);
+        }
+        return path;
+    }
+
+    /**
+     * Starts the counters for a new solve
+     * @return The counters of the new solve
+     */
+    private SolverStats begin(){
+        SolverStats stats = new SolverStats();
+        this.stats = stats;
+        return stats;
+    }
+
+    /**
+     * Stops the clock of a solve and wraps up what it found
+     * @param path The path to solution, null if there is none
+     * @param stats The counters of the solve
+     * @return The result of the solve
+     */
+    private static SolverResult end(List<Configuration> path, SolverStats stats){
+        stats.finish();
+        return new SolverResult(path, stats);
+    }
+
+    /**
+     * Stops the clock of a solve that hit one of its limits
+     * @param reason Why the solve stopped
+     * @param stats The counters of the solve, showing how far it got
+     * @return The result of the solve, without a path
+     */
+    private static SolverResult stop(StopReason reason, SolverStats stats){
+        stats.finish();
+        return new SolverResult(null, stats, reason);
+    }
+
+    /**
+     * Gets the counters of the current solve, or of the last one once it is finished.
+     * Safe to call from another thread while a solve is running.
+     * @return The counters of the solve
+     */
+    public SolverStats getStats() {
+        return stats;
+    }
+
+    public long getTotalConfigs() {
+        return stats.getGenerated();
+    }
+
+    public long getUniqueConfigs() {
+        return stats.getUnique();
+    }
+}
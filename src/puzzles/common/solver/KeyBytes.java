@@ -0,0 +1,54 @@
+package puzzles.common.solver;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Helpers for reading and writing numbers in configuration keys without allocating.
+ */
+public final class KeyBytes {
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private KeyBytes() {
+    }
+
+    public static void putLong(byte[] key, int offset, long value) {
+        LONG.set(key, offset, value);
+    }
+
+    public static long getLong(byte[] key, int offset) {
+        return (long) LONG.get(key, offset);
+    }
+
+    public static void putInt(byte[] key, int offset, int value) {
+        INT.set(key, offset, value);
+    }
+
+    public static int getInt(byte[] key, int offset) {
+        return (int) INT.get(key, offset);
+    }
+
+    /**
+     * Hashes part of a key into 64 well mixed bits
+     * @param key array holding the key
+     * @param offset position of the first byte of the key
+     * @param length number of bytes in the key
+     * @return hash of the key
+     */
+    public static long hash(byte[] key, int offset, int length) {
+        long h = 0x9E3779B97F4A7C15L ^ length;
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            h = Long.rotateLeft(h ^ getLong(key, offset + i) * 0xC2B2AE3D27D4EB4FL, 31) * 0x9E3779B97F4A7C15L;
+        }
+        for (; i < length; i++) {
+            h = (h ^ (key[offset + i] & 0xFF)) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
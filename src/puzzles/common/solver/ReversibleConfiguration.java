@@ -0,0 +1,25 @@
+package puzzles.common.solver;
+
+import java.util.Collection;
+
+/**
+ * Optional extension of a configuration for puzzles whose goal states are
+ * known up front and whose moves can be walked backwards. Solver uses it to
+ * search from the start and the goals at the same time.
+ */
+public interface ReversibleConfiguration extends Configuration {
+    /**
+     * Gets every goal configuration of the puzzle this configuration belongs to
+     * @return collection of configurations for which isSolution() is true
+     */
+    Collection<Configuration> getGoals();
+
+    /**
+     * Gets the configurations that reach this one in a single move. Puzzles
+     * whose moves can always be undone can keep the default.
+     * @return collection of the predecessor configurations
+     */
+    default Collection<Configuration> getPredecessors() {
+        return getNeighbors();
+    }
+}
@@ -0,0 +1,267 @@
+package puzzles.common.solver;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Snapshots of a breadth first search over a state arena, holding every key and parent
+ * it found, how far along the queue it was and its counters. The frontier is every state
+ * after the one that was about to be expanded. A snapshot is written to a file next to
+ * its own and moved over it once it is complete, so the file always holds a whole one.
+ *
+ * Snapshots are written on their own thread while the search keeps going. The arena only
+ * ever adds states at the end, so the ones a snapshot was taken of never change under it.
+ */
+final class SearchSnapshot implements AutoCloseable {
+    private static final int MAGIC = 0x42465343;
+    private static final int VERSION = 1;
+    /** Size of the buffer the file is written and read through */
+    private static final int BUFFER = 1 << 20;
+    /** Bytes of the header: magic, version, key length, size, next id, layer end, depth and six counters */
+    private static final int HEADER = 6 * Integer.BYTES + 7 * Long.BYTES;
+
+    /**
+     * A search read back from a snapshot
+     * @param arena Every state the search had found
+     * @param next The id that was about to be expanded
+     * @param layerEnd The first id of the layer after the one being expanded
+     * @param depth The layer being expanded
+     */
+    record Resumed(StateArena arena, int next, int layerEnd, long depth) {}
+
+    private final Checkpoints checkpoints;
+    /** Thread the snapshots are written on */
+    private final ExecutorService writer;
+    /** The snapshot being written, null if there is none */
+    private Future<?> pending;
+    /** When the last snapshot was taken */
+    private long lastNanos;
+    /** Expansions when the last snapshot was taken */
+    private long lastExpanded;
+
+    /**
+     * Constructor for the snapshots of one solve
+     * @param checkpoints Where and how often snapshots are written
+     * @param expanded The expansions so far, more than 0 for a resumed search
+     */
+    SearchSnapshot(Checkpoints checkpoints, long expanded) {
+        this.checkpoints = checkpoints;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lastNanos = System.nanoTime();
+        this.lastExpanded = expanded;
+    }
+
+    /**
+     * Checks to see if a snapshot should be taken now. It never is while the last one is still being written.
+     * @param expanded The expansions so far
+     * @return T/F value for if it is time for a snapshot
+     */
+    boolean isDue(long expanded) {
+        return (pending == null || pending.isDone())
+                && checkpoints.isDue(System.nanoTime() - lastNanos, expanded - lastExpanded);
+    }
+
+    /**
+     * Takes a snapshot and writes it on the writer thread
+     * @param arena The states of the search
+     * @param next The id about to be expanded
+     * @param layerEnd The first id of the next layer
+     * @param depth The layer being expanded
+     * @param stats The counters of the solve
+     */
+    void writeLater(StateArena arena, int next, int layerEnd, long depth, SolverStats stats) {
+        Runnable write = taken(arena, next, layerEnd, depth, stats);
+        pending = writer.submit(write);
+    }
+
+    /**
+     * Takes a snapshot and waits for it to be written, used when the solve stops early
+     */
+    void writeNow(StateArena arena, int next, int layerEnd, long depth, SolverStats stats) {
+        Runnable write = taken(arena, next, layerEnd, depth, stats);
+        await();
+        write.run();
+    }
+
+    /**
+     * Removes the snapshot once the solve is finished and there is nothing left to resume
+     */
+    void delete() {
+        await();
+        Path file = checkpoints.getFile();
+        try {
+            Files.deleteIfExists(file);
+            // Left behind if the process died while writing a snapshot
+            Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".part"));
+        }
+        catch (IOException e) {
+            System.err.println("Couldn't remove " + checkpoints.getFile() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        await();
+        writer.shutdown();
+    }
+
+    /**
+     * Waits for the snapshot being written, if there is one
+     */
+    private void await() {
+        if (pending != null) {
+            try {
+                pending.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException e) {
+                // The write reports its own failure
+            }
+            pending = null;
+        }
+    }
+
+    /**
+     * Takes everything a snapshot needs on the search thread
+     * @return what writes the snapshot
+     */
+    private Runnable taken(StateArena arena, int next, int layerEnd, long depth, SolverStats stats) {
+        lastNanos = System.nanoTime();
+        lastExpanded = stats.getExpanded();
+        int keyLength = arena.getKeyLength();
+        int size = arena.size();
+        byte[] keys = arena.keyArray();
+        int[] parents = arena.parentArray();
+        long[] counters = {
+                stats.getGenerated(), stats.getUnique(), stats.getExpanded(),
+                stats.getMaxFrontier(), stats.getPeakVisited(), stats.getDepth()
+        };
+        Path file = checkpoints.getFile();
+        return () -> {
+            try {
+                write(file, keyLength, size, keys, parents, next, layerEnd, depth, counters);
+            }
+            catch (IOException e) {
+                System.err.println("Couldn't save " + file + ": " + e.getMessage());
+            }
+        };
+    }
+
+    private static void write(Path file, int keyLength, int size, byte[] keys, int[] parents,
+                              int next, int layerEnd, long depth, long[] counters) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(keyLength).putInt(size).putInt(next).putInt(layerEnd).putLong(depth);
+            for (long counter: counters) {
+                buffer.putLong(counter);
+            }
+            // Each state is its key followed by its parent
+            for (int id = 0; id < size; id++) {
+                if (buffer.remaining() < keyLength + Integer.BYTES) {
+                    drain(channel, buffer);
+                }
+                buffer.put(keys, id * keyLength, keyLength).putInt(parents[id]);
+            }
+            drain(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads a search back from its snapshot and adds its counters to the solve
+     * @param file The file the snapshot is kept in
+     * @param startKey The key of the first state, which the snapshot has to start with
+     * @param stats The counters of the solve
+     * @return the search, null if there is no snapshot or it is of another puzzle
+     */
+    static Resumed read(Path file, byte[] startKey, SolverStats stats) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        int keyLength = startKey.length;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER).limit(0);
+            fill(channel, buffer, HEADER);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != keyLength) {
+                return null;
+            }
+            int size = buffer.getInt();
+            int next = buffer.getInt();
+            int layerEnd = buffer.getInt();
+            long depth = buffer.getLong();
+            long[] counters = new long[6];
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = buffer.getLong();
+            }
+
+            StateArena arena = new StateArena(keyLength);
+            byte[] key = new byte[keyLength];
+            for (int id = 0; id < size; id++) {
+                fill(channel, buffer, keyLength + Integer.BYTES);
+                buffer.get(key);
+                if (id == 0 && !Arrays.equals(key, startKey) || arena.add(key, 0, buffer.getInt()) != id) {
+                    return null;
+                }
+            }
+
+            stats.generated(counters[0]);
+            stats.unique(counters[1]);
+            stats.expanded(counters[2]);
+            stats.frontier(counters[3]);
+            stats.visited(counters[4]);
+            stats.depth(counters[5]);
+            return new Resumed(arena, next, layerEnd, depth);
+        }
+        catch (IOException e) {
+            System.err.println("Couldn't read " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Makes sure the buffer has a number of bytes left to read, reading more from the file if it doesn't
+     */
+    private static void fill(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() >= needed) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < needed) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("The snapshot ends early");
+            }
+        }
+        buffer.flip();
+    }
+}
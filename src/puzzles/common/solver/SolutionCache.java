@@ -0,0 +1,105 @@
+package puzzles.common.solver;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+/**
+ * Remembers solved paths so hints can be answered without solving again. Every
+ * configuration on a shortest path is stored with its distance to the goal and the
+ * next configuration along the path. The least recently used entries are dropped
+ * once the cache is full.
+ */
+public class SolutionCache {
+    /** Number of entries kept when no size is given */
+    public static final int DEFAULT_SIZE = 100_000;
+
+    /**
+     * What the cache knows about a configuration
+     */
+    public static class Entry {
+        /** Moves left to the goal, -1 if there is no solution */
+        private final int distance;
+        /** Next configuration on the path, null at the goal or without a solution */
+        private final Configuration next;
+
+        private Entry(int distance, Configuration next) {
+            this.distance = distance;
+            this.next = next;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+
+        public Configuration getNext() {
+            return next;
+        }
+
+        public boolean isSolvable() {
+            return distance >= 0;
+        }
+    }
+
+    /** Entries in least recently used order */
+    private final Map<Configuration, Entry> entries;
+
+    public SolutionCache() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Constructor for a solution cache
+     * @param maxEntries The most configurations to remember
+     */
+    public SolutionCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Configuration, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Looks up a configuration
+     * @param config The configuration to look up
+     * @return what is known about it, null if it isn't cached
+     */
+    public synchronized Entry get(Configuration config) {
+        return entries.get(config);
+    }
+
+    /**
+     * Stores every configuration on a shortest path. Entries are added from the goal
+     * back to the start so the start is the last one to be dropped.
+     * @param path List representation of the path to solution
+     */
+    public synchronized void put(List<Configuration> path) {
+        Configuration next = null;
+        int distance = 0;
+        ListIterator<Configuration> configs = path.listIterator(path.size());
+        while (configs.hasPrevious()) {
+            Configuration config = configs.previous();
+            entries.put(config, new Entry(distance++, next));
+            next = config;
+        }
+    }
+
+    /**
+     * Stores a configuration that has no solution
+     * @param config The configuration that can't be solved
+     */
+    public synchronized void putUnsolvable(Configuration config) {
+        entries.put(config, new Entry(-1, null));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
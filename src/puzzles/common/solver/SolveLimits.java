@@ -0,0 +1,90 @@
+package puzzles.common.solver;
+
+import java.time.Duration;
+
+/**
+ * Limits on how long a solve may run: a deadline, a number of expansions and a
+ * cancellation token. Limits never change, the with methods make new ones.
+ */
+public class SolveLimits {
+    /** Limits that let a solve run until it is finished */
+    public static final SolveLimits NONE = new SolveLimits(0, false, Long.MAX_VALUE, null);
+
+    /** The System.nanoTime() value the solve has to stop at, only used if there is a deadline */
+    private final long deadline;
+    /** Whether there is a deadline */
+    private final boolean hasDeadline;
+    /** The most configurations the solve may expand */
+    private final long maxExpansions;
+    /** Token that stops the solve when cancelled, null if there is none */
+    private final CancellationToken token;
+
+    private SolveLimits(long deadline, boolean hasDeadline, long maxExpansions, CancellationToken token) {
+        this.deadline = deadline;
+        this.hasDeadline = hasDeadline;
+        this.maxExpansions = maxExpansions;
+        this.token = token;
+    }
+
+    /**
+     * Makes limits that stop the solve once an amount of time has passed from now
+     * @param timeout How long the solve may run
+     * @return the new limits
+     */
+    public SolveLimits withTimeout(Duration timeout) {
+        return withDeadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * Makes limits that stop the solve at a point in time
+     * @param deadlineNanos The System.nanoTime() value to stop at
+     * @return the new limits
+     */
+    public SolveLimits withDeadline(long deadlineNanos) {
+        return new SolveLimits(deadlineNanos, true, maxExpansions, token);
+    }
+
+    /**
+     * Makes limits that stop the solve after a number of expansions
+     * @param maxExpansions The most configurations the solve may expand
+     * @return the new limits
+     */
+    public SolveLimits withMaxExpansions(long maxExpansions) {
+        return new SolveLimits(deadline, hasDeadline, maxExpansions, token);
+    }
+
+    /**
+     * Makes limits that stop the solve when a token is cancelled
+     * @param token The token to watch
+     * @return the new limits
+     */
+    public SolveLimits withToken(CancellationToken token) {
+        return new SolveLimits(deadline, hasDeadline, maxExpansions, token);
+    }
+
+    public long getMaxExpansions() {
+        return maxExpansions;
+    }
+
+    public CancellationToken getToken() {
+        return token;
+    }
+
+    /**
+     * Checks to see if a solve has to stop before its next expansion
+     * @param expanded The number of configurations expanded so far
+     * @return why the solve has to stop, null if it may keep going
+     */
+    StopReason check(long expanded) {
+        if (token != null && token.isCancelled()) {
+            return StopReason.CANCELLED;
+        }
+        if (expanded >= maxExpansions) {
+            return StopReason.EXPANSION_LIMIT;
+        }
+        if (hasDeadline && System.nanoTime() - deadline >= 0) {
+            return StopReason.DEADLINE;
+        }
+        return null;
+    }
+}
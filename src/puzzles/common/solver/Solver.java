@@ -1,19 +1,44 @@
 package puzzles.common.solver;
 
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class Solver {
-    /** The total number of configurations that were created */
-    private static int totalConfigs = 0;
-    /** The total number of unique configurations that were created */
-    private static int uniqueConfigs = 0;
+    /** Most indices a puzzle can have to be searched with flat arrays */
+    private static final long MAX_INDICES = Integer.MAX_VALUE - 8;
+    /** The counters of the current solve, or of the last one once it is finished */
+    private volatile SolverStats stats = new SolverStats();
 
     /**
      * Solve method that is used to solve any simple puzzle
      * @param start The starting configuration of the puzzle
-     * @return List representation of the path to solution
+     * @return The path to solution and the counters of the solve
+     */
+    public SolverResult solve(Configuration start){
+        return solve(start, SolveLimits.NONE);
+    }
+
+    /**
+     * Solve method that stops early once any of its limits is reached
+     * @param start The starting configuration of the puzzle
+     * @param limits The deadline, expansion budget and cancellation token of the solve
+     * @return The path to solution, or why the solve stopped and how far it got
      */
-    public static List<Configuration> solve(Configuration start){
+    public SolverResult solve(Configuration start, SolveLimits limits){
+        SolverStats stats = begin();
+        if (start instanceof DecomposableConfiguration decomposable){
+            return solveDecomposed(decomposable, limits, stats);
+        }
+        if (start instanceof IndexedConfiguration indexed && indexed.getIndexCount() <= MAX_INDICES){
+            return solveIndexed(indexed, limits, stats);
+        }
+        if (start instanceof EncodableConfiguration encodable){
+            return solveCompact(encodable, limits, stats, null);
+        }
 
         // Predecessor map and queue
         Map<Configuration,Configuration> predecessor = new HashMap<>();
@@ -24,24 +49,43 @@ public class Solver {
         toVisit.offer(start);
         predecessor.put(start, null);
 
+        // Counts what was taken off the queue to tell where each layer ends
+        long taken = 0;
+        long layerEnd = 1;
+        long depth = 0;
+
         // The algorithm itself
         while(!toVisit.isEmpty() && !toVisit.peek().isSolution()){
+            StopReason reason = limits.check(stats.getExpanded());
+            if (reason != null){
+                return stop(reason, stats);
+            }
+            if (taken == layerEnd){
+                // The queue holds exactly the next layer now
+                layerEnd += toVisit.size();
+                stats.depth(++depth);
+            }
+            taken++;
 
             // Gets current config
             Configuration current = toVisit.remove();
+            Collection<Configuration> neighbors = current.getNeighbors();
+            stats.expanded();
+            stats.generated(neighbors.size());
 
-            for (Configuration config: current.getNeighbors()){
-                totalConfigs++;
+            for (Configuration config: neighbors){
                 if (!predecessor.containsKey(config)){
-                    uniqueConfigs++;
+                    stats.unique(1);
                     predecessor.put(config,current);
                     toVisit.offer(config);
                 }
             }
+            stats.frontier(toVisit.size());
+            stats.visited(predecessor.size());
         }
 
         if (toVisit.isEmpty()){
-            return null;
+            return end(null, stats);
         }
         else {
             // Path list
@@ -57,15 +101,889 @@ public class Solver {
                 path.add(0, configuration);
                 configuration = predecessor.get(configuration);
             }
-            return path;
+            return end(path, stats);
+        }
+    }
+
+    /**
+     * Solves each part of a configuration made of independent parts on its own, then
+     * makes the moves of the first part, then the second and so on. The parts add up
+     * to a shortest path since no move helps more than one part. Solving the parts in
+     * order gives the same path a search over the whole configuration would find, as
+     * the search tries the moves of earlier parts first.
+     * @param start The starting configuration of the puzzle
+     * @param limits The deadline, expansion budget and cancellation token of the solve
+     * @param stats The counters of the solve, the sum of the counters of the parts
+     * @return The path to solution, or why the solve stopped and how far it got
+     */
+    private static SolverResult solveDecomposed(DecomposableConfiguration start, SolveLimits limits, SolverStats stats){
+        List<Configuration> components = start.getComponents();
+        List<List<Configuration>> paths = new ArrayList<>(components.size());
+        for (Configuration component: components){
+            // The expansion budget is shared by all the parts
+            SolveLimits left = limits.withMaxExpansions(limits.getMaxExpansions() - stats.getExpanded());
+            SolverResult part = new Solver().solve(component, left);
+            SolverStats partStats = part.getStats();
+            stats.generated(partStats.getGenerated());
+            stats.unique(partStats.getUnique());
+            stats.expanded(partStats.getExpanded());
+            stats.frontier(partStats.getMaxFrontier());
+            stats.visited(partStats.getPeakVisited());
+            if (!part.isComplete()){
+                return stop(part.getStopReason(), stats);
+            }
+            if (part.getPath() == null){
+                return end(null, stats);
+            }
+            paths.add(part.getPath());
+            stats.depth(stats.getDepth() + part.getPath().size() - 1);
+        }
+
+        List<Configuration> path = new ArrayList<>();
+        DecomposableConfiguration current = start;
+        path.add(current);
+        for (int i = 0; i < paths.size(); i++){
+            List<Configuration> part = paths.get(i);
+            for (int step = 1; step < part.size(); step++){
+                current = current.withComponent(i, part.get(step));
+                path.add(current);
+            }
+        }
+
+        // Parts that can't say everything about the goal, like a string of the wrong length
+        return end(current.isSolution() ? path : null, stats);
+    }
+
+    /**
+     * Breadth first search over the indices of a puzzle that numbers all of its
+     * configurations. The visited set is a bitset and the parents and the queue are
+     * int arrays, all indexed directly, so nothing is hashed. Goals are spotted as
+     * soon as they are made, like in the arena search.
+     * @param start The starting configuration of the puzzle
+     * @param limits The deadline, expansion budget and cancellation token of the solve
+     * @param stats The counters of the solve
+     * @return The path to solution, or why the solve stopped and how far it got
+     */
+    private static SolverResult solveIndexed(IndexedConfiguration start, SolveLimits limits, SolverStats stats){
+        IndexVisitor visitor = new IndexVisitor(start, (int) start.getIndexCount());
+        byte[] key = new byte[start.getKeyLength()];
+        byte[] scratch = new byte[key.length];
+        start.writeKey(key, 0);
+        int first = start.indexOf(key, 0);
+        visitor.visited[first >>> 6] |= 1L << first;
+        visitor.parents[first] = first;
+        visitor.queue[visitor.tail++] = first;
+        if (start.isSolution()){
+            return end(buildPath(visitor, first, start), stats);
+        }
+
+        int layerEnd = 1;
+        long depth = 0;
+        for (int head = 0; head < visitor.tail; head++){
+            StopReason reason = limits.check(stats.getExpanded());
+            if (reason != null){
+                return stop(reason, stats);
+            }
+            if (head == layerEnd){
+                layerEnd = visitor.tail;
+                stats.depth(++depth);
+            }
+
+            int index = visitor.queue[head];
+            start.writeKeyOf(index, key, 0);
+            int before = visitor.tail;
+            visitor.parent = index;
+            stats.generated(start.forEachNeighborKey(key, 0, scratch, visitor));
+            stats.expanded();
+            stats.unique(visitor.tail - before);
+            if (visitor.goal >= 0){
+                stats.depth(depth + 1);
+                return end(buildPath(visitor, visitor.goal, start), stats);
+            }
+            stats.frontier(visitor.tail - head - 1);
+            stats.visited(visitor.tail);
+        }
+        return end(null, stats);
+    }
+
+    /**
+     * Marks the neighbors of one configuration as visited and queues the new ones,
+     * stopping at the first goal
+     */
+    private static final class IndexVisitor implements EncodableConfiguration.NeighborVisitor {
+        private final IndexedConfiguration codec;
+        /** One bit for every index that was seen */
+        private final long[] visited;
+        /** Parent index of every index that was seen, the start being its own parent */
+        private final int[] parents;
+        /** Indices in the order they were seen, every index is queued at most once */
+        private final int[] queue;
+        /** Number of indices queued */
+        private int tail;
+        /** Index of the configuration being expanded */
+        private int parent;
+        /** Index of the goal that was found, -1 until then */
+        private int goal = -1;
+
+        private IndexVisitor(IndexedConfiguration codec, int count){
+            this.codec = codec;
+            this.visited = new long[(count + 63) >>> 6];
+            this.parents = new int[count];
+            this.queue = new int[count];
+        }
+
+        @Override
+        public boolean visit(byte[] key, int offset, boolean solution){
+            int index = codec.indexOf(key, offset);
+            if (index < 0 || (visited[index >>> 6] & 1L << index) != 0){
+                return true;
+            }
+            visited[index >>> 6] |= 1L << index;
+            parents[index] = parent;
+            queue[tail++] = index;
+            if (solution){
+                goal = index;
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Walks the parent indices back from the goal to build the path
+     * @param visitor The visitor holding the parents
+     * @param goal The index of the solution that was found
+     * @param codec Any configuration of the puzzle, used to rebuild configurations from keys
+     * @return List representation of the path to solution
+     */
+    private static List<Configuration> buildPath(IndexVisitor visitor, int goal, IndexedConfiguration codec){
+        List<Configuration> path = new LinkedList<>();
+        byte[] key = new byte[codec.getKeyLength()];
+        int index = goal;
+        while (true){
+            codec.writeKeyOf(index, key, 0);
+            path.add(0, codec.fromKey(key, 0));
+            if (visitor.parents[index] == index){
+                return path;
+            }
+            index = visitor.parents[index];
+        }
+    }
+
+    /**
+     * Breadth first search over int ids in a state arena. Only the keys of visited
+     * configurations are kept and neighbors are made straight from keys, so no
+     * configurations are made until the path is built. Goals are spotted as soon as
+     * they are made instead of when they reach the front of the queue. The path is
+     * the same one the regular search finds, since the first goal made is the first
+     * one the queue would give back. A puzzle with symmetries keeps only the canonical
+     * key of each configuration, so mirror images are visited once, and the path is
+     * turned back to the orientation of the start at the end. A puzzle whose moves
+     * commute is told where each configuration was reached from, so it can skip the
+     * moves that only make the same configuration in another order. With checkpoints
+     * the search starts from the last snapshot if there is one, writes snapshots as
+     * it goes and when it stops early, and removes the snapshot once it is finished.
+     * @param start The starting configuration of the puzzle
+     * @param limits The deadline, expansion budget and cancellation token of the solve
+     * @param stats The counters of the solve
+     * @param checkpoints Where snapshots of the search are kept, null for none
+     * @return The path to solution, or why the solve stopped and how far it got
+     */
+    private static SolverResult solveCompact(EncodableConfiguration start, SolveLimits limits, SolverStats stats,
+                                             Checkpoints checkpoints){
+        byte[] key = new byte[start.getKeyLength()];
+        SymmetricConfiguration symmetry = start instanceof SymmetricConfiguration symmetric
+                && symmetric.getSymmetryCount() > 1 ? symmetric : null;
+        start.writeKey(key, 0);
+        if (symmetry != null){
+            symmetry.canonicalize(key, 0);
+        }
+        if (start.isSolution()){
+            return end(new LinkedList<>(List.of(start)), stats);
+        }
+
+        // The queue is every id from the one being expanded to the last one
+        SearchSnapshot.Resumed resumed = checkpoints == null ? null : SearchSnapshot.read(checkpoints.getFile(), key, stats);
+        StateArena arena;
+        int first = 0;
+        int layerEnd = 1;
+        long depth = 0;
+        if (resumed != null){
+            arena = resumed.arena();
+            first = resumed.next();
+            layerEnd = resumed.layerEnd();
+            depth = resumed.depth();
+        }
+        else {
+            arena = new StateArena(start.getKeyLength());
+            arena.add(key, 0, StateArena.NO_PARENT);
+        }
+        try (SearchSnapshot snapshots = checkpoints == null ? null : new SearchSnapshot(checkpoints, stats.getExpanded())) {
+            SolverResult result = searchArena(start, arena, first, layerEnd, depth, symmetry, limits, stats, snapshots);
+            if (snapshots != null && result.isComplete()){
+                snapshots.delete();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Runs the breadth first search of solveCompact from a point in its queue
+     * @param first The id to expand first
+     * @param layerEnd The first id of the layer after the one first is in
+     * @param depth The layer first is in
+     * @param snapshots Where snapshots of the search are written, null for none
+     * @return The path to solution, or why the solve stopped and how far it got
+     */
+    private static SolverResult searchArena(EncodableConfiguration start, StateArena arena, int first, int layerEnd, long depth,
+                                            SymmetricConfiguration symmetry, SolveLimits limits, SolverStats stats,
+                                            SearchSnapshot snapshots){
+        byte[] key = new byte[start.getKeyLength()];
+        byte[] scratch = new byte[key.length];
+        CommutingConfiguration commuting = start instanceof CommutingConfiguration c ? c : null;
+        byte[] parentKey = new byte[key.length];
+        ArenaVisitor visitor = new ArenaVisitor(arena, symmetry);
+        for (int id = first; id < arena.size(); id++){
+            StopReason reason = limits.check(stats.getExpanded());
+            if (reason != null){
+                if (snapshots != null){
+                    snapshots.writeNow(arena, id, layerEnd, depth, stats);
+                }
+                return stop(reason, stats);
+            }
+            if (snapshots != null && snapshots.isDue(stats.getExpanded())){
+                snapshots.writeLater(arena, id, layerEnd, depth, stats);
+            }
+            if (id == layerEnd){
+                layerEnd = arena.size();
+                stats.depth(++depth);
+            }
+
+            arena.readKey(id, key, 0);
+            visitor.parent = id;
+            visitor.added = 0;
+            if (commuting != null && id > 0){
+                arena.readKey(arena.parent(id), parentKey, 0);
+                stats.generated(commuting.forEachNeighborKey(parentKey, 0, key, 0, scratch, visitor));
+            }
+            else {
+                stats.generated(start.forEachNeighborKey(key, 0, scratch, visitor));
+            }
+            stats.expanded();
+            stats.unique(visitor.added);
+            if (visitor.goal >= 0){
+                stats.depth(depth + 1);
+                List<Configuration> path = buildPath(arena, visitor.goal, start);
+                return end(symmetry == null ? path : orient(path, symmetry), stats);
+            }
+            stats.frontier(arena.size() - id - 1);
+            stats.visited(arena.size());
+        }
+        return end(null, stats);
+    }
+
+    /**
+     * Adds the neighbors of one configuration to the arena, stopping at the first goal
+     */
+    private static final class ArenaVisitor implements EncodableConfiguration.NeighborVisitor {
+        private final StateArena arena;
+        /** Canonicalizes the keys before they are added, null for a puzzle without symmetries */
+        private final SymmetricConfiguration symmetry;
+        /** The canonical key of the neighbor being added */
+        private final byte[] canonical;
+        /** Id of the configuration being expanded */
+        private int parent;
+        /** Number of neighbors that were new */
+        private int added;
+        /** Id of the goal that was found, -1 until then */
+        private int goal = -1;
+
+        private ArenaVisitor(StateArena arena, SymmetricConfiguration symmetry){
+            this.arena = arena;
+            this.symmetry = symmetry;
+            this.canonical = symmetry == null ? null : new byte[symmetry.getKeyLength()];
+        }
+
+        @Override
+        public boolean visit(byte[] key, int offset, boolean solution){
+            if (symmetry != null){
+                System.arraycopy(key, offset, canonical, 0, canonical.length);
+                symmetry.canonicalize(canonical, 0);
+                key = canonical;
+                offset = 0;
+            }
+            int id = arena.add(key, offset, parent);
+            if (id >= 0){
+                added++;
+                if (solution){
+                    goal = id;
+                    return false;
+                }
+            }
+            return true;
         }
     }
 
-    public static int getTotalConfigs() {
-        return totalConfigs;
+    /**
+     * Walks the parent ids of the arena back from the goal to build the path
+     * @param arena The arena holding the visited configurations
+     * @param goal The id of the solution that was found
+     * @param codec Any configuration of the puzzle, used to rebuild configurations from keys
+     * @return List representation of the path to solution
+     */
+    private static List<Configuration> buildPath(StateArena arena, int goal, EncodableConfiguration codec){
+        List<Configuration> path = new LinkedList<>();
+        byte[] key = new byte[codec.getKeyLength()];
+        for (int id = goal; id != StateArena.NO_PARENT; id = arena.parent(id)){
+            arena.readKey(id, key, 0);
+            path.add(0, codec.fromKey(key, 0));
+        }
+        return path;
+    }
+
+    /**
+     * Turns a path of canonical configurations into a path from the start. Each step
+     * goes to the neighbor of the last configuration that is a mirror image of the
+     * next canonical configuration.
+     * @param canonical The path the search found, one canonical configuration per step
+     * @param start The starting configuration of the puzzle
+     * @return List representation of the path to solution, starting at start
+     * @throws IllegalStateException if no neighbor is a mirror image of the next step
+     */
+    private static List<Configuration> orient(List<Configuration> canonical, SymmetricConfiguration start){
+        int length = start.getKeyLength();
+        List<Configuration> path = new LinkedList<>();
+        path.add(start);
+        byte[] key = new byte[length];
+        byte[] next = new byte[length];
+        byte[] wanted = new byte[length];
+        byte[] mirror = new byte[length];
+        boolean[] matched = new boolean[1];
+        start.writeKey(key, 0);
+        Iterator<Configuration> steps = canonical.iterator();
+        steps.next();
+        while (steps.hasNext()){
+            ((EncodableConfiguration) steps.next()).writeKey(wanted, 0);
+            matched[0] = false;
+            start.forEachNeighborKey(key, 0, mirror, (neighbor, offset, solution) -> {
+                System.arraycopy(neighbor, offset, next, 0, length);
+                start.canonicalize(neighbor, offset);
+                matched[0] = Arrays.equals(neighbor, offset, offset + length, wanted, 0, length);
+                return !matched[0];
+            });
+            if (!matched[0]){
+                throw new IllegalStateException("No move leads to a mirror image of step " + path.size() + " of the path");
+            }
+            System.arraycopy(next, 0, key, 0, length);
+            path.add(start.fromKey(key, 0));
+        }
+        return path;
+    }
+
+    /**
+     * Solve method that searches from the start and from the goals at the same time,
+     * stopping as soon as the two searches meet. Configurations that can't supply
+     * their goals are handed to the regular solve.
+     * @param start The starting configuration of the puzzle
+     * @return The shortest path to solution and the counters of the solve
+     */
+    public SolverResult solveBidirectional(Configuration start){
+        return solveBidirectional(start, SolveLimits.NONE);
+    }
+
+    /**
+     * Bidirectional solve method that stops early once any of its limits is reached
+     * @param start The starting configuration of the puzzle
+     * @param limits The deadline, expansion budget and cancellation token of the solve
+     * @return The shortest path to solution, or why the solve stopped and how far it got
+     */
+    public SolverResult solveBidirectional(Configuration start, SolveLimits limits){
+        if (!(start instanceof ReversibleConfiguration reversible)){
+            return solve(start, limits);
+        }
+        SolverStats stats = begin();
+
+        // Forward map points at the parent, backward map points at the next step to a goal
+        Map<Configuration,Configuration> forward = new HashMap<>();
+        Map<Configuration,Configuration> backward = new HashMap<>();
+        List<Configuration> forwardLayer = new ArrayList<>();
+        List<Configuration> backwardLayer = new ArrayList<>();
+
+        forward.put(start, null);
+        forwardLayer.add(start);
+        for (Configuration goal: reversible.getGoals()){
+            if (!backward.containsKey(goal)){
+                backward.put(goal, null);
+                backwardLayer.add(goal);
+            }
+        }
+
+        Configuration meeting = backward.containsKey(start) ? start : null;
+        long depth = 0;
+
+        // Expands a whole layer of the smaller side each time
+        // The first configuration seen by both sides is on a shortest path
+        while (meeting == null && !forwardLayer.isEmpty() && !backwardLayer.isEmpty()){
+            boolean fromStart = forwardLayer.size() <= backwardLayer.size();
+            Map<Configuration,Configuration> seen = fromStart ? forward : backward;
+            Map<Configuration,Configuration> other = fromStart ? backward : forward;
+            List<Configuration> next = new ArrayList<>();
+
+            for (Configuration current: fromStart ? forwardLayer : backwardLayer){
+                StopReason reason = limits.check(stats.getExpanded());
+                if (reason != null){
+                    return stop(reason, stats);
+                }
+                Collection<Configuration> configs = fromStart ? current.getNeighbors()
+                        : ((ReversibleConfiguration) current).getPredecessors();
+                stats.expanded();
+                stats.generated(configs.size());
+                for (Configuration config: configs){
+                    if (!seen.containsKey(config)){
+                        stats.unique(1);
+                        seen.put(config, current);
+                        next.add(config);
+                        if (other.containsKey(config)){
+                            meeting = config;
+                            break;
+                        }
+                    }
+                }
+                if (meeting != null){
+                    break;
+                }
+            }
+
+            if (fromStart){
+                forwardLayer = next;
+            }
+            else {
+                backwardLayer = next;
+            }
+            stats.depth(++depth);
+            stats.frontier(forwardLayer.size() + backwardLayer.size());
+            stats.visited(forward.size() + backward.size());
+        }
+
+        if (meeting == null){
+            return end(null, stats);
+        }
+
+        // Walks back to the start, then forward to the goal
+        List<Configuration> path = new LinkedList<>();
+        Configuration configuration = meeting;
+        while (configuration != null) {
+            path.add(0, configuration);
+            configuration = forward.get(configuration);
+        }
+        configuration = backward.get(meeting);
+        while (configuration != null) {
+            path.add(configuration);
+            configuration = backward.get(configuration);
+        }
+        return end(path, stats);
+    }
+
+    /**
+     * Solve method that expands each layer of the search on every core
+     * @param start The starting configuration of the puzzle
+     * @return The path to solution and the counters of the solve
+     */
+    public SolverResult solveParallel(Configuration start){
+        return solveParallel(start, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Solve method that expands each layer of the search in parallel. Parents are
+     * picked in the same order the regular solve would pick them, so the path is the
+     * same shortest path on every run no matter how many threads are used.
+     * @param start The starting configuration of the puzzle
+     * @param threads The number of threads to expand layers with
+     * @return The path to solution and the counters of the solve
+     */
+    public SolverResult solveParallel(Configuration start, int threads){
+        return solveParallel(start, threads, SolveLimits.NONE);
+    }
+
+    /**
+     * Parallel solve method that stops early once any of its limits is reached
+     * @param start The starting configuration of the puzzle
+     * @param threads The number of threads to expand layers with
+     * @param limits The deadline, expansion budget and cancellation token of the solve
+     * @return The path to solution, or why the solve stopped and how far it got
+     */
+    public SolverResult solveParallel(Configuration start, int threads, SolveLimits limits){
+        SolverStats stats = begin();
+
+        // Predecessor map is only written between layers, so threads can read it while expanding
+        // The start is its own parent since the map can't hold nulls
+        Map<Configuration,Configuration> predecessor = new ConcurrentHashMap<>();
+        List<Configuration> layer = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        predecessor.put(start, start);
+        layer.add(start);
+        Configuration goal = start.isSolution() ? start : null;
+        long depth = 0;
+
+        try {
+            while (goal == null && !layer.isEmpty()){
+                StopReason reason = limits.check(stats.getExpanded());
+                if (reason != null){
+                    return stop(reason, stats);
+                }
+                List<Configuration> current = layer;
+
+                // Expands the layer in parallel, dropping configurations seen in earlier layers
+                List<List<Configuration>> expanded = pool.submit(() -> IntStream.range(0, current.size())
+                        .parallel()
+                        .mapToObj(i -> {
+                            List<Configuration> fresh = new ArrayList<>();
+                            if (limits.check(stats.getExpanded()) != null){
+                                return fresh;
+                            }
+                            Collection<Configuration> neighbors = current.get(i).getNeighbors();
+                            stats.expanded();
+                            stats.generated(neighbors.size());
+                            for (Configuration config: neighbors){
+                                if (!predecessor.containsKey(config)){
+                                    fresh.add(config);
+                                }
+                            }
+                            return fresh;
+                        })
+                        .collect(Collectors.toList())).join();
+
+                // Workers that hit a limit skipped their configurations, so the layer is thrown away
+                reason = limits.check(stats.getExpanded());
+                if (reason != null){
+                    return stop(reason, stats);
+                }
+
+                // Merges in queue order so the first parent to find a configuration keeps it
+                layer = new ArrayList<>();
+                for (int i = 0; i < current.size(); i++){
+                    for (Configuration config: expanded.get(i)){
+                        if (!predecessor.containsKey(config)){
+                            stats.unique(1);
+                            predecessor.put(config, current.get(i));
+                            layer.add(config);
+                            if (goal == null && config.isSolution()){
+                                goal = config;
+                            }
+                        }
+                    }
+                }
+                stats.frontier(layer.size());
+                stats.visited(predecessor.size());
+                stats.depth(++depth);
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        if (goal == null){
+            return end(null, stats);
+        }
+
+        // Goes backwards to find the path to the start
+        List<Configuration> path = new LinkedList<>();
+        path.add(goal);
+        Configuration configuration = goal;
+        while (configuration != start) {
+            configuration = predecessor.get(configuration);
+            path.add(0, configuration);
+        }
+        return end(path, stats);
+    }
+
+    /**
+     * Solve method that keeps the visited configurations as compact keys outside the heap
+     * and spills them to disk once the memory budget is used up. Configurations that
+     * can't be written as keys are handed to the regular solve.
+     * @param start The starting configuration of the puzzle
+     * @param memoryBudget Bytes of memory to use for visited configurations before spilling
+     * @param spillDir Directory the spill files are made in
+     * @return The path to solution and the counters of the solve
+     */
+    public SolverResult solveBounded(Configuration start, long memoryBudget, Path spillDir){
+        return solveBounded(start, memoryBudget, spillDir, SolveLimits.NONE);
+    }
+
+    /**
+     * Memory bounded solve method that stops early once any of its limits is reached
+     * @param start The starting configuration of the puzzle
+     * @param memoryBudget Bytes of memory to use for visited configurations before spilling
+     * @param spillDir Directory the spill files are made in
+     * @param limits The deadline, expansion budget and cancellation token of the solve
+     * @return The path to solution, or why the solve stopped and how far it got
+     */
+    public SolverResult solveBounded(Configuration start, long memoryBudget, Path spillDir, SolveLimits limits){
+        if (!(start instanceof EncodableConfiguration encodable)){
+            return solve(start, limits);
+        }
+        SolverStats stats = begin();
+        byte[] key = new byte[encodable.getKeyLength()];
+
+        try (SpillingStateStore store = new SpillingStateStore(key.length, memoryBudget, spillDir)) {
+            encodable.writeKey(key, 0);
+            store.add(key, SpillingStateStore.NO_PARENT);
+
+            // Ids are handed out in the order configurations are found,
+            // so the queue is just every id from the one being expanded to the last one
+            long layerEnd = 1;
+            long depth = 0;
+            for (long id = 0; id < store.size(); id++){
+                StopReason reason = limits.check(stats.getExpanded());
+                if (reason != null){
+                    return stop(reason, stats);
+                }
+                if (id == layerEnd){
+                    layerEnd = store.size();
+                    stats.depth(++depth);
+                }
+                store.readKey(id, key);
+                Configuration current = encodable.fromKey(key, 0);
+                if (current.isSolution()){
+                    return end(buildPath(store, id, encodable), stats);
+                }
+
+                Collection<Configuration> neighbors = current.getNeighbors();
+                stats.expanded();
+                stats.generated(neighbors.size());
+                for (Configuration config: neighbors){
+                    ((EncodableConfiguration) config).writeKey(key, 0);
+                    if (store.add(key, id) >= 0){
+                        stats.unique(1);
+                    }
+                }
+                stats.frontier(store.size() - id - 1);
+                stats.visited(store.size());
+            }
+        }
+        return end(null, stats);
+    }
+
+    /**
+     * Solve method for long solves that writes snapshots of its search as it goes, and
+     * picks up from the last one if an earlier solve of the same puzzle didn't finish
+     * @param start The starting configuration of the puzzle
+     * @param checkpoints Where and how often snapshots are written
+     * @return The path to solution and the counters of the solve
+     */
+    public SolverResult solveCheckpointed(EncodableConfiguration start, Checkpoints checkpoints){
+        return solveCheckpointed(start, checkpoints, SolveLimits.NONE);
+    }
+
+    /**
+     * Checkpointed solve method that stops early once any of its limits is reached. A
+     * snapshot is written when it stops, so a later solve can carry on from there.
+     * @param start The starting configuration of the puzzle
+     * @param checkpoints Where and how often snapshots are written
+     * @param limits The deadline, expansion budget and cancellation token of the solve
+     * @return The path to solution, or why the solve stopped and how far it got
+     */
+    public SolverResult solveCheckpointed(EncodableConfiguration start, Checkpoints checkpoints, SolveLimits limits){
+        return solveCompact(start, limits, begin(), checkpoints);
+    }
+
+    /**
+     * Walks the parent ids of the store back from the goal to build the path
+     * @param store The store holding the visited configurations
+     * @param goal The id of the solution that was found
+     * @param codec Any configuration of the puzzle, used to rebuild configurations from keys
+     * @return List representation of the path to solution
+     */
+    private static List<Configuration> buildPath(SpillingStateStore store, long goal, EncodableConfiguration codec){
+        List<Configuration> path = new LinkedList<>();
+        byte[] key = new byte[codec.getKeyLength()];
+        for (long id = goal; id != SpillingStateStore.NO_PARENT; id = store.parent(id)){
+            store.readKey(id, key);
+            path.add(0, codec.fromKey(key, 0));
+        }
+        return path;
+    }
+
+    /**
+     * Solve method that only keeps the last few layers of the search in memory
+     * @param start The starting configuration of the puzzle
+     * @return The path to solution and the counters of the solve
+     */
+    public SolverResult solveFrontier(Configuration start){
+        return solveFrontier(start, SolveLimits.NONE);
+    }
+
+    /**
+     * Solve method that keeps the layer being expanded, the one before it and the one
+     * being made instead of every configuration it has seen, so memory grows with the
+     * widest layer instead of with the whole search. A configuration is new if it isn't
+     * in one of those layers, which is enough for puzzles whose moves can be undone.
+     * Other puzzles may see a configuration again and, with no solution, only stop at a limit.
+     *
+     * Without parents the path is found by splitting it. A second search to the goal
+     * remembers the configuration halfway there, and each half is solved the same way
+     * until the pieces are single moves. That costs a few more expansions than the
+     * regular solve, about one more full search plus its halves, and the counters
+     * include them.
+     * @param start The starting configuration of the puzzle
+     * @param limits The deadline, expansion budget and cancellation token of the solve
+     * @return The path to solution, or why the solve stopped and how far it got
+     */
+    public SolverResult solveFrontier(Configuration start, SolveLimits limits){
+        SolverStats stats = begin();
+        if (start.isSolution()){
+            return end(new LinkedList<>(List.of(start)), stats);
+        }
+        FrontierHit goal = searchFrontier(start, null, -1, limits, stats);
+        if (goal.reason() != null){
+            return stop(goal.reason(), stats);
+        }
+        if (goal.found() == null){
+            return end(null, stats);
+        }
+        List<Configuration> path = new LinkedList<>();
+        path.add(start);
+        StopReason reason = connect(start, goal.found(), goal.depth(), limits, stats, path);
+        if (reason != null){
+            return stop(reason, stats);
+        }
+        return end(path, stats);
+    }
+
+    /**
+     * What a frontier search reached
+     * @param found The configuration that was reached, null if there was none
+     * @param depth The number of moves it is from where the search began
+     * @param relay The configuration on the way to it at the relay depth, null if there was none
+     * @param reason Why the search stopped early, null if it didn't
+     */
+    private record FrontierHit(Configuration found, long depth, Configuration relay, StopReason reason) {}
+
+    /**
+     * Adds a shortest path from one configuration to another to the end of a path, by
+     * finding the configuration halfway between them and connecting each half
+     * @param from The configuration the path ends at so far
+     * @param to The configuration to get to
+     * @param depth The number of moves between them
+     * @param limits The deadline, expansion budget and cancellation token of the solve
+     * @param stats The counters of the solve
+     * @param path The path, which gets everything after from up to and including to
+     * @return Why the solve stopped early, null if it didn't
+     */
+    private static StopReason connect(Configuration from, Configuration to, long depth, SolveLimits limits,
+                                      SolverStats stats, List<Configuration> path){
+        if (depth <= 1){
+            path.add(to);
+            return null;
+        }
+        long half = depth / 2;
+        FrontierHit hit = searchFrontier(from, to, half, limits, stats);
+        if (hit.reason() != null){
+            return hit.reason();
+        }
+        StopReason reason = connect(from, hit.relay(), half, limits, stats, path);
+        if (reason != null){
+            return reason;
+        }
+        return connect(hit.relay(), to, depth - half, limits, stats, path);
+    }
+
+    /**
+     * Breadth first search that only keeps three layers. Each configuration carries the
+     * one it was reached through at the relay depth. The layers keep the order their
+     * configurations were found in, so the search picks the same parents the regular one does.
+     * @param from The configuration to start from
+     * @param target The configuration to get to, null to stop at the first solution
+     * @param relayDepth The depth whose configurations are remembered, -1 for none
+     * @param limits The deadline, expansion budget and cancellation token of the solve
+     * @param stats The counters of the solve
+     * @return What the search reached, with a null configuration if it ran out of configurations
+     */
+    private static FrontierHit searchFrontier(Configuration from, Configuration target, long relayDepth,
+                                              SolveLimits limits, SolverStats stats){
+        Set<Configuration> previous = Set.of();
+        Map<Configuration,Configuration> current = new LinkedHashMap<>();
+        current.put(from, relayDepth == 0 ? from : null);
+        long depth = 0;
+        while (!current.isEmpty()){
+            Map<Configuration,Configuration> next = new LinkedHashMap<>();
+            for (Map.Entry<Configuration,Configuration> entry: current.entrySet()){
+                StopReason reason = limits.check(stats.getExpanded());
+                if (reason != null){
+                    return new FrontierHit(null, depth, null, reason);
+                }
+                Collection<Configuration> neighbors = entry.getKey().getNeighbors();
+                stats.expanded();
+                stats.generated(neighbors.size());
+                for (Configuration config: neighbors){
+                    if (previous.contains(config) || current.containsKey(config) || next.containsKey(config)){
+                        continue;
+                    }
+                    Configuration relay = depth + 1 == relayDepth ? config : entry.getValue();
+                    next.put(config, relay);
+                    stats.unique(1);
+                    if (target == null ? config.isSolution() : config.equals(target)){
+                        stats.depth(depth + 1);
+                        return new FrontierHit(config, depth + 1, relay, null);
+                    }
+                }
+            }
+            previous = current.keySet();
+            current = next;
+            stats.frontier(current.size());
+            stats.visited(previous.size() + current.size());
+            stats.depth(++depth);
+        }
+        return new FrontierHit(null, depth, null, null);
+    }
+
+    /**
+     * Starts the counters for a new solve
+     * @return The counters of the new solve
+     */
+    private SolverStats begin(){
+        SolverStats stats = new SolverStats();
+        this.stats = stats;
+        return stats;
+    }
+
+    /**
+     * Stops the clock of a solve and wraps up what it found
+     * @param path The path to solution, null if there is none
+     * @param stats The counters of the solve
+     * @return The result of the solve
+     */
+    private static SolverResult end(List<Configuration> path, SolverStats stats){
+        stats.finish();
+        return new SolverResult(path, stats);
+    }
+
+    /**
+     * Stops the clock of a solve that hit one of its limits
+     * @param reason Why the solve stopped
+     * @param stats The counters of the solve, showing how far it got
+     * @return The result of the solve, without a path
+     */
+    private static SolverResult stop(StopReason reason, SolverStats stats){
+        stats.finish();
+        return new SolverResult(null, stats, reason);
+    }
+
+    /**
+     * Gets the counters of the current solve, or of the last one once it is finished.
+     * Safe to call from another thread while a solve is running.
+     * @return The counters of the solve
+     */
+    public SolverStats getStats() {
+        return stats;
+    }
+
+    public long getTotalConfigs() {
+        return stats.getGenerated();
     }
 
-    public static int getUniqueConfigs() {
-        return uniqueConfigs;
+    public long getUniqueConfigs() {
+        return stats.getUnique();
     }
 }
@@ -0,0 +1,70 @@
+package puzzles.common.solver;
+
+import java.util.List;
+
+/**
+ * What a solve returns: the path it found, if any, why it stopped and the counters of
+ * that solve. A solve that was stopped early still has counters showing how far it got.
+ */
+public class SolverResult {
+    /** The path from the start to the solution, null if there is none */
+    private final List<Configuration> path;
+    /** The counters of the solve */
+    private final SolverStats stats;
+    /** Why the solve stopped */
+    private final StopReason stopReason;
+
+    /**
+     * Constructor for a solve result
+     * @param path The path from the start to the solution, null if there is none
+     * @param stats The counters of the solve
+     */
+    public SolverResult(List<Configuration> path, SolverStats stats) {
+        this(path, stats, path == null ? StopReason.NO_SOLUTION : StopReason.SOLVED);
+    }
+
+    /**
+     * Constructor for a solve result that may have been stopped early
+     * @param path The path from the start to the solution, null if there is none
+     * @param stats The counters of the solve
+     * @param stopReason Why the solve stopped
+     */
+    public SolverResult(List<Configuration> path, SolverStats stats, StopReason stopReason) {
+        this.path = path;
+        this.stats = stats;
+        this.stopReason = stopReason;
+    }
+
+    /**
+     * Gets the path that was found
+     * @return List representation of the path to solution, null if there is no solution
+     */
+    public List<Configuration> getPath() {
+        return path;
+    }
+
+    public boolean isSolved() {
+        return path != null;
+    }
+
+    /**
+     * Checks to see if the solve ran to the end. If it didn't, a missing path
+     * doesn't mean there is no solution.
+     * @return T/F value for if the solve found a solution or saw every configuration
+     */
+    public boolean isComplete() {
+        return stopReason == StopReason.SOLVED || stopReason == StopReason.NO_SOLUTION;
+    }
+
+    public boolean isCancelled() {
+        return stopReason == StopReason.CANCELLED;
+    }
+
+    public StopReason getStopReason() {
+        return stopReason;
+    }
+
+    public SolverStats getStats() {
+        return stats;
+    }
+}
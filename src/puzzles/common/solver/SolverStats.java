@@ -0,0 +1,142 @@
+package puzzles.common.solver;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for a single solve. Every counter can be read from another thread
+ * while the solve is still running, which is how progress gets shown.
+ */
+public class SolverStats {
+    /** The number of configurations that were created */
+    private final LongAdder generated = new LongAdder();
+    /** The number of unique configurations that were created */
+    private final LongAdder unique = new LongAdder();
+    /** The number of configurations whose neighbors were created */
+    private final LongAdder expanded = new LongAdder();
+    /** The most configurations waiting to be expanded at once */
+    private final LongAccumulator maxFrontier = new LongAccumulator(Math::max, 0);
+    /** The most configurations remembered as visited at once */
+    private final LongAccumulator peakVisited = new LongAccumulator(Math::max, 0);
+    /** The deepest layer of the search that was reached */
+    private final LongAccumulator depth = new LongAccumulator(Math::max, 0);
+    /** When the solve started */
+    private final long startNanos = System.nanoTime();
+    /** When the solve finished, 0 while it is still running */
+    private volatile long endNanos;
+
+    /**
+     * Records configurations that were created
+     * @param count The number of configurations
+     */
+    public void generated(long count) {
+        generated.add(count);
+    }
+
+    /**
+     * Records configurations that had not been seen before
+     * @param count The number of configurations
+     */
+    public void unique(long count) {
+        unique.add(count);
+    }
+
+    /**
+     * Records that a configuration had its neighbors created
+     */
+    public void expanded() {
+        expanded.increment();
+    }
+
+    /**
+     * Records configurations that had their neighbors created
+     * @param count The number of configurations
+     */
+    public void expanded(long count) {
+        expanded.add(count);
+    }
+
+    /**
+     * Records the current number of configurations waiting to be expanded
+     * @param size The size of the frontier
+     */
+    public void frontier(long size) {
+        maxFrontier.accumulate(size);
+    }
+
+    /**
+     * Records the current number of configurations remembered as visited
+     * @param size The size of the visited set
+     */
+    public void visited(long size) {
+        peakVisited.accumulate(size);
+    }
+
+    /**
+     * Records the layer of the search that is being expanded
+     * @param layer The number of moves from the start, or from both ends added up
+     */
+    public void depth(long layer) {
+        depth.accumulate(layer);
+    }
+
+    /**
+     * Marks the solve as finished, which stops the clock
+     */
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public long getGenerated() {
+        return generated.sum();
+    }
+
+    public long getUnique() {
+        return unique.sum();
+    }
+
+    public long getExpanded() {
+        return expanded.sum();
+    }
+
+    public long getMaxFrontier() {
+        return maxFrontier.get();
+    }
+
+    public long getPeakVisited() {
+        return peakVisited.get();
+    }
+
+    public long getDepth() {
+        return depth.get();
+    }
+
+    public boolean isFinished() {
+        return endNanos != 0;
+    }
+
+    /**
+     * Gets the wall time of the solve, up to now if it is still running
+     * @return elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        long end = endNanos;
+        return (end == 0 ? System.nanoTime() : end) - startNanos;
+    }
+
+    /**
+     * Gets the number of configurations created per second of wall time
+     * @return configurations per second
+     */
+    public double getConfigsPerSecond() {
+        long nanos = getElapsedNanos();
+        return nanos == 0 ? 0 : getGenerated() * 1_000_000_000.0 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("generated=%d unique=%d expanded=%d maxFrontier=%d peakVisited=%d depth=%d time=%.3fs rate=%.0f/s",
+                getGenerated(), getUnique(), getExpanded(), getMaxFrontier(), getPeakVisited(), getDepth(),
+                getElapsedNanos() / 1e9, getConfigsPerSecond());
+    }
+}
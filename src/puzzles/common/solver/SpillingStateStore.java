@@ -0,0 +1,292 @@
+package puzzles.common.solver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Visited set and predecessor links for a breadth first search, stored as compact
+ * keys outside the Java heap. Each state gets a dense id in the order it was added
+ * and a record holding its key and the id of its parent. An open addressing table
+ * finds the id of a key.
+ *
+ * Memory comes from direct buffers until the budget is used up, or until the JVM won't
+ * give more direct memory, after that from files in the spill directory that are mapped
+ * into memory, so the operating system pages them out to disk as needed. Memory that is
+ * given back, like the old table when the table grows, is handed out again before any
+ * new memory. The spill files are deleted on close.
+ */
+public class SpillingStateStore implements AutoCloseable {
+    /** Bytes in one segment of memory, every segment being the same size so any can be reused */
+    private static final int SEGMENT_BYTES = 1 << 22;
+    /** Bits of a table slot holding the id, the rest hold part of the hash */
+    private static final int ID_BITS = 40;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+    /** Parent id of the first state */
+    public static final long NO_PARENT = -1;
+
+    /** Length of every key */
+    private final int keyLength;
+    /** Where memory beyond the budget is spilled */
+    private final Memory memory;
+    /** Records holding the key and parent of each state */
+    private final RecordArray records;
+    /** Open addressing table of (hash bits, id + 1), 0 being an empty slot */
+    private RecordArray table;
+    /** Number of slots in the table, always a power of two */
+    private long slots;
+    /** Number of states stored */
+    private long size;
+    /** Scratch key used when comparing and rehashing */
+    private final byte[] scratch;
+
+    /**
+     * Constructor for a state store
+     * @param keyLength The length of every key
+     * @param memoryBudget Bytes of memory to use before spilling to disk
+     * @param spillDir Directory the spill files are made in
+     */
+    public SpillingStateStore(int keyLength, long memoryBudget, Path spillDir) {
+        this.keyLength = keyLength;
+        this.memory = new Memory(memoryBudget, spillDir);
+        this.records = new RecordArray(keyLength + Long.BYTES, memory);
+        this.slots = 1 << 16;
+        this.table = new RecordArray(Long.BYTES, memory);
+        this.table.ensure(slots);
+        this.scratch = new byte[keyLength];
+    }
+
+    /**
+     * Adds a state if it isn't stored yet
+     * @param key The key of the state
+     * @param parent The id of the state it was reached from, NO_PARENT for the first one
+     * @return the id of the new state, or -1 if the key was already stored
+     */
+    public long add(byte[] key, long parent) {
+        long hash = KeyBytes.hash(key, 0, keyLength);
+        long tag = hash >>> ID_BITS;
+        long mask = slots - 1;
+        long slot = hash & mask;
+        while (true) {
+            long entry = table.getLong(slot, 0);
+            if (entry == 0) {
+                break;
+            }
+            if (entry >>> ID_BITS == tag && sameKey((entry & ID_MASK) - 1, key)) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        long id = size++;
+        records.ensure(size);
+        records.put(id, 0, key, keyLength);
+        records.putLong(id, keyLength, parent);
+        table.putLong(slot, 0, tag << ID_BITS | (id + 1));
+
+        // Keeps the table under two thirds full
+        if (size * 3 > slots * 2) {
+            grow();
+        }
+        return id;
+    }
+
+    /**
+     * Checks to see if a stored state has the given key
+     */
+    private boolean sameKey(long id, byte[] key) {
+        records.get(id, 0, scratch, keyLength);
+        for (int i = 0; i < keyLength; i++) {
+            if (scratch[i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Doubles the table and puts every state back in. The hashes come from the records,
+     * so the old table is given back first and its memory goes into the new one.
+     */
+    private void grow() {
+        table.release();
+        slots *= 2;
+        table = new RecordArray(Long.BYTES, memory);
+        table.ensure(slots);
+        long mask = slots - 1;
+        for (long id = 0; id < size; id++) {
+            records.get(id, 0, scratch, keyLength);
+            long hash = KeyBytes.hash(scratch, 0, keyLength);
+            long slot = hash & mask;
+            while (table.getLong(slot, 0) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table.putLong(slot, 0, (hash >>> ID_BITS) << ID_BITS | (id + 1));
+        }
+    }
+
+    /**
+     * Reads the key of a stored state
+     * @param id The id of the state
+     * @param key array the key is read into
+     */
+    public void readKey(long id, byte[] key) {
+        records.get(id, 0, key, keyLength);
+    }
+
+    /**
+     * Gets the parent of a stored state
+     * @param id The id of the state
+     * @return the id of its parent, NO_PARENT for the first state
+     */
+    public long parent(long id) {
+        return records.getLong(id, keyLength);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Checks to see if any memory had to be spilled to disk
+     * @return T/F value for if a spill file was made
+     */
+    public boolean isSpilled() {
+        return !memory.files.isEmpty();
+    }
+
+    @Override
+    public void close() {
+        records.release();
+        table.release();
+        memory.close();
+    }
+
+    /**
+     * Hands out segments of memory: ones given back first, then from the budget and from
+     * spill files after
+     */
+    static final class Memory {
+        private static final byte[] ZEROS = new byte[1 << 16];
+
+        private final long budget;
+        private final Path spillDir;
+        private final List<Path> files = new ArrayList<>();
+        /** Segments given back, direct or mapped, waiting to be handed out again */
+        private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+        /** Bytes of direct memory taken. Direct buffers are only freed by the garbage
+         *  collector, so a segment that is given back still counts until it is reused. */
+        private long used;
+        /** Set once the JVM refuses direct memory, which is capped by -XX:MaxDirectMemorySize */
+        private boolean directFull;
+
+        Memory(long budget, Path spillDir) {
+            this.budget = budget;
+            this.spillDir = spillDir;
+        }
+
+        /**
+         * Gets a segment of SEGMENT_BYTES bytes, all of them 0
+         */
+        ByteBuffer allocate() {
+            ByteBuffer reused = free.poll();
+            if (reused != null) {
+                for (int at = 0; at < reused.capacity(); at += ZEROS.length) {
+                    reused.put(at, ZEROS, 0, Math.min(ZEROS.length, reused.capacity() - at));
+                }
+                return reused;
+            }
+            if (!directFull && used + SEGMENT_BYTES <= budget) {
+                try {
+                    ByteBuffer buffer = ByteBuffer.allocateDirect(SEGMENT_BYTES);
+                    used += SEGMENT_BYTES;
+                    return buffer;
+                }
+                catch (OutOfMemoryError e) {
+                    // The limit defaults to the heap size, which may be far below the budget
+                    directFull = true;
+                }
+            }
+            try {
+                Files.createDirectories(spillDir);
+                Path file = Files.createTempFile(spillDir, "states", ".spill");
+                files.add(file);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    return channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Could not spill states to " + spillDir, e);
+            }
+        }
+
+        void release(ByteBuffer buffer) {
+            free.push(buffer);
+        }
+
+        void close() {
+            free.clear();
+            for (Path file : files) {
+                try {
+                    Files.deleteIfExists(file);
+                }
+                catch (IOException e) {
+                    file.toFile().deleteOnExit();
+                }
+            }
+            files.clear();
+        }
+    }
+
+    /**
+     * Fixed size records laid out in segments, no record crossing a segment boundary
+     */
+    static final class RecordArray {
+        private final int recordSize;
+        private final int perSegment;
+        private final Memory memory;
+        private final List<ByteBuffer> segments = new ArrayList<>();
+
+        RecordArray(int recordSize, Memory memory) {
+            this.recordSize = recordSize;
+            this.perSegment = Math.max(1, SEGMENT_BYTES / recordSize);
+            this.memory = memory;
+        }
+
+        void ensure(long count) {
+            while ((long) segments.size() * perSegment < count) {
+                segments.add(memory.allocate());
+            }
+        }
+
+        long getLong(long record, int offset) {
+            return segments.get((int) (record / perSegment)).getLong((int) (record % perSegment) * recordSize + offset);
+        }
+
+        void putLong(long record, int offset, long value) {
+            segments.get((int) (record / perSegment)).putLong((int) (record % perSegment) * recordSize + offset, value);
+        }
+
+        void get(long record, int offset, byte[] dst, int length) {
+            segments.get((int) (record / perSegment)).get((int) (record % perSegment) * recordSize + offset, dst, 0, length);
+        }
+
+        void put(long record, int offset, byte[] src, int length) {
+            segments.get((int) (record / perSegment)).put((int) (record % perSegment) * recordSize + offset, src, 0, length);
+        }
+
+        void release() {
+            for (ByteBuffer segment : segments) {
+                memory.release(segment);
+            }
+            segments.clear();
+        }
+    }
+}
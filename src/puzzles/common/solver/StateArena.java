@@ -0,0 +1,161 @@
+package puzzles.common.solver;
+
+import java.util.Arrays;
+
+/**
+ * Visited set and predecessor links for a breadth first search kept in a few flat
+ * arrays on the heap. Each unique key is given a dense int id in the order it was
+ * added. The keys sit back to back in one byte array, the parents in an int array,
+ * and an open addressing table finds the id of a key, so a state costs its key plus
+ * a few ints instead of a configuration object and a map entry.
+ *
+ * Since ids are handed out in the order states are found, the ids from the one being
+ * expanded to the last one are the queue of a breadth first search.
+ */
+public class StateArena {
+    /** Parent id of the first state */
+    public static final int NO_PARENT = -1;
+    /** Most states an arena can hold, so the table never needs more than 2^30 slots */
+    private static final int MAX_STATES = 1 << 29;
+    /** Longest array the JVM is sure to allocate */
+    private static final int MAX_ARRAY = Integer.MAX_VALUE - 8;
+
+    /** Length of every key */
+    private final int keyLength;
+    /** Most states this arena can hold, the keys have to fit in one array */
+    private final int maxStates;
+    /** Keys in id order, keyLength bytes each */
+    private byte[] keys;
+    /** Parent id of each state */
+    private int[] parents;
+    /** Open addressing table of (32 hash bits, id + 1), 0 being an empty slot */
+    private long[] table;
+    /** Number of states stored */
+    private int size;
+
+    /**
+     * Constructor for a state arena
+     * @param keyLength The length of every key
+     */
+    public StateArena(int keyLength) {
+        this.keyLength = keyLength;
+        this.maxStates = Math.min(MAX_STATES, MAX_ARRAY / Math.max(1, keyLength));
+        this.keys = new byte[Math.max(1, keyLength) * 1024];
+        this.parents = new int[1024];
+        this.table = new long[1 << 11];
+    }
+
+    /**
+     * Adds a state if it isn't stored yet
+     * @param key array holding the key of the state
+     * @param offset position of the first byte of the key
+     * @param parent The id of the state it was reached from, NO_PARENT for the first one
+     * @return the id of the new state, or -1 if the key was already stored
+     */
+    public int add(byte[] key, int offset, int parent) {
+        // The slot comes from the same bits that are kept in the table, so growing never rehashes a key
+        int hash = (int) (KeyBytes.hash(key, offset, keyLength) >>> 32);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (true) {
+            long entry = table[slot];
+            if (entry == 0) {
+                break;
+            }
+            if ((int) (entry >>> 32) == hash && sameKey((int) entry - 1, key, offset)) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == maxStates) {
+            throw new IllegalStateException("More than " + maxStates + " states, use a bounded solve instead");
+        }
+        int id = size++;
+        if (size > parents.length) {
+            int capacity = (int) Math.min(maxStates, parents.length * 2L);
+            parents = Arrays.copyOf(parents, capacity);
+            keys = Arrays.copyOf(keys, capacity * keyLength);
+        }
+        System.arraycopy(key, offset, keys, id * keyLength, keyLength);
+        parents[id] = parent;
+        table[slot] = (long) hash << 32 | (id + 1L);
+
+        // Keeps the table at most half full
+        if (size * 2L > table.length) {
+            grow();
+        }
+        return id;
+    }
+
+    /**
+     * Checks to see if a stored state has the given key
+     */
+    private boolean sameKey(int id, byte[] key, int offset) {
+        int from = id * keyLength;
+        return Arrays.equals(keys, from, from + keyLength, key, offset, offset + keyLength);
+    }
+
+    /**
+     * Doubles the table and puts every entry back in
+     */
+    private void grow() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        int mask = table.length - 1;
+        for (long entry: old) {
+            if (entry != 0) {
+                int slot = (int) (entry >>> 32) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = entry;
+            }
+        }
+    }
+
+    /**
+     * Copies the key of a stored state
+     * @param id The id of the state
+     * @param key array the key is copied into
+     * @param offset position the key is copied to
+     */
+    public void readKey(int id, byte[] key, int offset) {
+        System.arraycopy(keys, id * keyLength, key, offset, keyLength);
+    }
+
+    /**
+     * Gets the parent of a stored state
+     * @param id The id of the state
+     * @return the id of its parent, NO_PARENT for the first state
+     */
+    public int parent(int id) {
+        return parents[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getKeyLength() {
+        return keyLength;
+    }
+
+    /**
+     * Gets the array the keys are kept in. The keys of the states stored so far never
+     * change, even once the arena moves to a bigger array, so another thread may read
+     * them while states are still being added.
+     * @return keys in id order, keyLength bytes each
+     */
+    byte[] keyArray() {
+        return keys;
+    }
+
+    /**
+     * Gets the array the parents are kept in, which like the keys may be read from another thread
+     * @return parent id of each state
+     */
+    int[] parentArray() {
+        return parents;
+    }
+}
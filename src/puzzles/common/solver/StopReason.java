@@ -0,0 +1,17 @@
+package puzzles.common.solver;
+
+/**
+ * Why a solve stopped
+ */
+public enum StopReason {
+    /** A path to a solution was found */
+    SOLVED,
+    /** Every reachable configuration was seen and none of them is a solution */
+    NO_SOLUTION,
+    /** The cancellation token of the solve was cancelled */
+    CANCELLED,
+    /** The deadline of the solve passed */
+    DEADLINE,
+    /** The solve expanded as many configurations as it was allowed to */
+    EXPANSION_LIMIT
+}
@@ -0,0 +1,24 @@
+package puzzles.common.solver;
+
+/**
+ * Optional extension of an encodable configuration whose puzzle looks the same after
+ * some reflections or rotations. The moves and the solutions of such a puzzle are the
+ * same in every orientation, so a search only needs to visit one configuration out of
+ * each group of mirror images. Solvers key their visited set on the canonical key and
+ * turn the path back to the orientation of the start at the end.
+ */
+public interface SymmetricConfiguration extends EncodableConfiguration {
+    /**
+     * Gets the number of orientations the puzzle looks the same in, counting the one it is in
+     * @return 1 when the puzzle has no symmetry
+     */
+    int getSymmetryCount();
+
+    /**
+     * Turns a key into the canonical key of its mirror images, the same key for
+     * every orientation of the same configuration
+     * @param key array holding the key, which is overwritten
+     * @param offset position of the first byte of the key
+     */
+    void canonicalize(byte[] key, int offset);
+}
@@ -2,7 +2,9 @@ package puzzles.crossing;
 
 import puzzles.common.solver.Configuration;
 import puzzles.common.solver.Solver;
+import puzzles.common.solver.SolverResult;
 
+import java.io.PrintWriter;
 import java.util.List;
 
 /**
@@ -12,29 +14,43 @@ import java.util.List;
 public class Crossing {
     public static void main(String[] args) {
         if (args.length < 2) {
-            System.out.println(("Usage: java Crossing pups wolves"));
+            System.out.println(("Usage: java Crossing pups wolves [capacity]"));
         } else {
             int pups = Integer.parseInt(args[0]);
             int wolves = Integer.parseInt(args[1]);
-            CrossingConfig cc = new CrossingConfig(pups, wolves);
-            System.out.println("Pups: " + args[0] + ", Wolves: " + args[1]);
-            Solver solver = new Solver();
-            List<Configuration> solution = solver.solve(cc);
-            if (solution != null){
-                System.out.println("Total configs: " + solver.getTotalConfigs());
-                System.out.println("Unique configs: " + solver.getUniqueConfigs());
-                for (int i = 0; i < solution.size(); i++){
-                    if (i % 2 == 0){
-                        System.out.println("Step " + i + ": " + "(BOAT) " + solution.get(i));
-                    }
-                    else {
-                        System.out.println("Step " + i + ": " + "       " + solution.get(i) + " (BOAT)");
-                    }
+            int capacity = args.length > 2 ? Integer.parseInt(args[2]) : CrossingConfig.DEFAULT_CAPACITY;
+            PrintWriter out = new PrintWriter(System.out);
+            solve(new CrossingConfig(pups, wolves, capacity), out);
+            out.flush();
+        }
+    }
+
+    /**
+     * Solves a crossing and writes the answer
+     * @param cc The crossing to solve
+     * @param out Where the answer is written
+     * @return the result of the solve
+     */
+    public static SolverResult solve(CrossingConfig cc, PrintWriter out) {
+        out.println("Pups: " + cc.getPups() + ", Wolves: " + cc.getWolves());
+        Solver solver = new Solver();
+        SolverResult result = solver.solve(cc);
+        List<Configuration> solution = result.getPath();
+        if (solution != null){
+            out.println("Total configs: " + solver.getTotalConfigs());
+            out.println("Unique configs: " + solver.getUniqueConfigs());
+            for (int i = 0; i < solution.size(); i++){
+                if (i % 2 == 0){
+                    out.println("Step " + i + ": " + "(BOAT) " + solution.get(i));
+                }
+                else {
+                    out.println("Step " + i + ": " + "       " + solution.get(i) + " (BOAT)");
                 }
             }
-            else{
-                System.out.println("No solution!");
-            }
         }
+        else{
+            out.println("No solution!");
+        }
+        return result;
     }
 }
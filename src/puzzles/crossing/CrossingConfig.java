@@ -1,16 +1,22 @@
 package puzzles.crossing;
 
 import puzzles.common.solver.Configuration;
+import puzzles.common.solver.IndexedConfiguration;
+import puzzles.common.solver.KeyBytes;
 import puzzles.strings.StringsConfig;
 
-import java.util.Collection;
-import java.util.LinkedList;
 
 /**
  * Class that is responsible for creating and checking all of the neighbors for a crossing config
  * @Author Jared Hugo
  */
-public class CrossingConfig implements Configuration {
+public class CrossingConfig implements IndexedConfiguration {
+    /** Room in the boat when none is given, two pups or one wolf */
+    public static final int DEFAULT_CAPACITY = 2;
+    /** Room a wolf takes up in the boat, a pup takes 1 */
+    private static final int WOLF_SIZE = 2;
+    /** Room in the boat */
+    private final int capacity;
     /** Boolean that tells if the boat is on the left */
     private boolean boatLeft;
     /** The amount of pups on the left side of the river */
@@ -36,11 +42,25 @@ public class CrossingConfig implements Configuration {
      * @param wolves The number of total wolves
      */
     public CrossingConfig(int pups, int wolves){
+        this(pups, wolves, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor for a crossing config with a boat of any size
+     * @param pups The number of total pups
+     * @param wolves The number of total wolves
+     * @param capacity The room in the boat, a pup takes 1 and a wolf takes 2
+     */
+    public CrossingConfig(int pups, int wolves, int capacity){
+        if (capacity < 1){
+            throw new IllegalArgumentException("The boat needs room for at least one pup");
+        }
         this.pupsLeft = pups;
         this.wolvesLeft = wolves;
         this.wolvesRight = 0;
         this.pupsRight = 0;
         this.boatLeft = true;
+        this.capacity = capacity;
     }
 
     /**
@@ -63,50 +83,150 @@ public class CrossingConfig implements Configuration {
             this.wolvesLeft = copy.wolvesLeft + newWolves;
         }
         this.boatLeft = !copy.boatLeft;
+        this.capacity = copy.capacity;
+    }
+
+    /**
+     * Constructor for a crossing config with every amount given, used in rebuilding configs from keys
+     * @param pupsLeft The amount of pups on the left
+     * @param wolvesLeft The amount of wolves on the left
+     * @param pupsRight The amount of pups on the right
+     * @param wolvesRight The amount of wolves on the right
+     * @param boatLeft T/F value for if the boat is on the left
+     * @param capacity The room in the boat
+     */
+    private CrossingConfig(int pupsLeft, int wolvesLeft, int pupsRight, int wolvesRight, boolean boatLeft, int capacity){
+        this.pupsLeft = pupsLeft;
+        this.wolvesLeft = wolvesLeft;
+        this.pupsRight = pupsRight;
+        this.wolvesRight = wolvesRight;
+        this.boatLeft = boatLeft;
+        this.capacity = capacity;
     }
 
     @Override
     /**
-     * Creates the neighbors for a crossing config
-     * @return A collection of all of the configurations
+     * Gets the length of the key, the left side amounts and the boat
+     * @return number of bytes in a key
      */
-    public Collection<Configuration> getNeighbors() {
-        LinkedList<Configuration> lst = new LinkedList<>();
-        if (this.boatLeft) {
-            if (this.pupsLeft > 1 && this.wolvesLeft >= 1) {
-                lst.add(new CrossingConfig(2, 0, this));
-                lst.add(new CrossingConfig(1, 0, this));
-                lst.add(new CrossingConfig(0, 1, this));
-            }
-            else if (this.pupsLeft > 1){
-                lst.add(new CrossingConfig(2, 0, this));
-                lst.add(new CrossingConfig(1, 0, this));
-            }
-            else if (this.wolvesLeft >= 1){
-                lst.add(new CrossingConfig(0, 1, this));
-            }
-            else{
-                lst.add(new CrossingConfig(1, 0, this));
-            }
+    public int getKeyLength() {
+        return 2 * Integer.BYTES + 1;
+    }
+
+    @Override
+    /**
+     * Writes the key of the crossing config, the right side follows from the totals
+     */
+    public void writeKey(byte[] key, int offset) {
+        KeyBytes.putInt(key, offset, this.pupsLeft);
+        KeyBytes.putInt(key, offset + Integer.BYTES, this.wolvesLeft);
+        key[offset + 2 * Integer.BYTES] = (byte) (this.boatLeft ? 1 : 0);
+    }
+
+    @Override
+    /**
+     * Rebuilds a crossing config with the same totals from a key
+     * @return the crossing config of the key
+     */
+    public Configuration fromKey(byte[] key, int offset) {
+        int pups = KeyBytes.getInt(key, offset);
+        int wolves = KeyBytes.getInt(key, offset + Integer.BYTES);
+        return new CrossingConfig(pups, wolves, this.pupsLeft + this.pupsRight - pups,
+                this.wolvesLeft + this.wolvesRight - wolves, key[offset + 2 * Integer.BYTES] == 1, this.capacity);
+    }
+
+    @Override
+    /**
+     * Gets the number of indices, one for every split of the pups and wolves and side of the boat
+     * @return number of indices
+     */
+    public long getIndexCount() {
+        return (long) (getPups() + 1) * (getWolves() + 1) * 2;
+    }
+
+    @Override
+    /**
+     * Gets the index of a key from the left side amounts and the boat
+     * @return index of the key, -1 if the amounts don't fit the totals
+     */
+    public int indexOf(byte[] key, int offset) {
+        int pups = KeyBytes.getInt(key, offset);
+        int wolves = KeyBytes.getInt(key, offset + Integer.BYTES);
+        if (pups < 0 || pups > getPups() || wolves < 0 || wolves > getWolves()){
+            return -1;
         }
-        else{
-            if (this.pupsRight > 1 && this.wolvesRight >= 1){
-                lst.add(new CrossingConfig(2, 0, this));
-                lst.add(new CrossingConfig(1, 0, this));
-                lst.add(new CrossingConfig(0, 1, this));
-            }
-            else if (this.pupsRight > 1){
-                lst.add(new CrossingConfig(2, 0, this));
-                lst.add(new CrossingConfig(1, 0, this));
-            }
-            else if (this.wolvesRight >= 1){
-                lst.add(new CrossingConfig(0, 1, this));
-            }
-            else{
-                lst.add(new CrossingConfig(1, 0, this));
+        return (pups * (getWolves() + 1) + wolves) * 2 + key[offset + 2 * Integer.BYTES];
+    }
+
+    @Override
+    /**
+     * Writes the key of an index
+     */
+    public void writeKeyOf(int index, byte[] key, int offset) {
+        KeyBytes.putInt(key, offset, index / 2 / (getWolves() + 1));
+        KeyBytes.putInt(key, offset + Integer.BYTES, index / 2 % (getWolves() + 1));
+        key[offset + 2 * Integer.BYTES] = (byte) (index % 2);
+    }
+
+    /**
+     * Gets the total number of pups
+     * @return number of pups
+     */
+    public int getPups(){
+        return this.pupsLeft + this.pupsRight;
+    }
+
+    /**
+     * Gets the total number of wolves
+     * @return number of wolves
+     */
+    public int getWolves(){
+        return this.wolvesLeft + this.wolvesRight;
+    }
+
+    public int getCapacity(){
+        return this.capacity;
+    }
+
+    @Override
+    /**
+     * Writes the keys of the crossings the boat can make from a key
+     * @return number of neighbors
+     */
+    public int forEachNeighborKey(byte[] key, int offset, byte[] scratch, NeighborVisitor visitor) {
+        int pupsLeft = KeyBytes.getInt(key, offset);
+        int wolvesLeft = KeyBytes.getInt(key, offset + Integer.BYTES);
+        boolean boatLeft = key[offset + 2 * Integer.BYTES] == 1;
+        int pups = boatLeft ? pupsLeft : this.pupsLeft + this.pupsRight - pupsLeft;
+        int wolves = boatLeft ? wolvesLeft : this.wolvesLeft + this.wolvesRight - wolvesLeft;
+
+        // The boat takes any load that fits from the side it is on, the biggest loads of pups first
+        int count = 0;
+        for (int w = 0; w <= wolves && w * WOLF_SIZE <= this.capacity; w++){
+            for (int p = Math.min(pups, this.capacity - w * WOLF_SIZE); p >= (w == 0 ? 1 : 0); p--){
+                count++;
+                if (!cross(p, w, pupsLeft, wolvesLeft, boatLeft, scratch, visitor)){
+                    return count;
+                }
             }
         }
-        return lst;
+        return count;
+    }
+
+    /**
+     * Writes the key after the boat crosses and hands it to the visitor
+     * @param pups The amount of pups in the boat
+     * @param wolves The amount of wolves in the boat
+     * @return T/F value for if the visitor wants more neighbors
+     */
+    private static boolean cross(int pups, int wolves, int pupsLeft, int wolvesLeft, boolean boatLeft,
+                                 byte[] scratch, NeighborVisitor visitor) {
+        int newPups = boatLeft ? pupsLeft - pups : pupsLeft + pups;
+        int newWolves = boatLeft ? wolvesLeft - wolves : wolvesLeft + wolves;
+        KeyBytes.putInt(scratch, 0, newPups);
+        KeyBytes.putInt(scratch, Integer.BYTES, newWolves);
+        scratch[2 * Integer.BYTES] = (byte) (boatLeft ? 0 : 1);
+        return visitor.visit(scratch, 0, newPups == 0 && newWolves == 0);
     }
 
     @Override
@@ -132,11 +252,9 @@ public class CrossingConfig implements Configuration {
      * @return The hashcode for a crossing config
      */
     public int hashCode() {
-        int hash = 0;
-        if (this.boatLeft){
-            hash = 1;
-        }
-        return this.wolvesRight + this.wolvesLeft + this.pupsRight + this.pupsLeft + hash;
+        // The totals never change, so only the left side and the boat tell configs apart
+        int hash = this.pupsLeft * 31 + this.wolvesLeft;
+        return this.boatLeft ? hash * 2 + 1 : hash * 2;
     }
 
     @Override
@@ -0,0 +1,397 @@
+package puzzles.distributed;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.EncodableConfiguration;
+import puzzles.common.solver.KeyBytes;
+import puzzles.common.solver.StateArena;
+import puzzles.service.PuzzleRequest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One process of a distributed breadth first search. Every configuration belongs to
+ * exactly one worker, picked by the hash of its key, and only that worker remembers it.
+ * The search goes a layer at a time: each worker expands the configurations it found in
+ * the last layer, keeps the neighbors that belong to it and sends the others to their
+ * owners in batches. A layer is over once every worker has heard the end of it from
+ * every other worker. A worker that fails still ends its layer, so the others aren't
+ * left waiting, and a worker that goes quiet or away fails the layer of the others.
+ *
+ * The worker prints the port it listens on and then takes its commands from the first
+ * connection, which is the coordinator's. The next ones are the other workers.
+ */
+public class BfsWorker {
+    /** Command that gives the worker its index and the ports of all the workers */
+    static final byte PEERS = 1;
+    /** Command that loads a puzzle and forgets the last one */
+    static final byte LOAD = 2;
+    /** Command that expands the last layer */
+    static final byte EXPAND = 3;
+    /** Command that asks for the key and parent of a configuration */
+    static final byte NODE = 4;
+    /** Command that ends the worker */
+    static final byte QUIT = 5;
+    /** Reply to a command that worked */
+    static final byte OK = 0;
+    /** Reply to a command that didn't, followed by why */
+    static final byte ERROR = -1;
+    /** Worker of the start, which has no parent */
+    static final int NO_WORKER = -1;
+
+    /** Most neighbors sent to another worker at once */
+    private static final int BATCH = 4096;
+    /** Count of the batch a reader puts in the inbox when its worker goes away */
+    private static final int LOST = -1;
+    /** Longest a worker waits to hear anything from the others during a layer */
+    static final Duration PEER_TIMEOUT = Duration.ofMinutes(2);
+
+    /**
+     * Neighbors sent by one worker, or the end of its layer if there are none
+     * @param sender The index of the worker that sent them
+     * @param count The number of neighbors, LOST if the connection to the sender is gone
+     * @param records Each neighbor's key, the id of its parent on the sender and whether it is a solution
+     */
+    private record Batch(int sender, int count, byte[] records) {}
+
+    private final ServerSocket server;
+    /** Neighbors that came from the other workers */
+    private final BlockingQueue<Batch> inbox = new LinkedBlockingQueue<>();
+    private int index;
+    private int workers;
+    /** Streams to the other workers, null for this one */
+    private DataOutputStream[] peers;
+
+    private EncodableConfiguration start;
+    /** Read by the threads taking in batches too */
+    private volatile int keyLength;
+    /** Configurations this worker owns, each with the id of its parent on the parent's worker */
+    private StateArena arena;
+    /** Worker of each configuration's parent */
+    private int[] parentWorkers;
+    /** First id of the layer to expand next */
+    private int layerStart;
+    /** Id of the first solution found, -1 until then */
+    private int goal;
+
+    private BfsWorker(ServerSocket server) {
+        this.server = server;
+    }
+
+    /**
+     * Connects to every other worker and starts reading what they send
+     * @param index The index of this worker
+     * @param ports The port of every worker by index
+     */
+    private void connect(int index, int[] ports) throws IOException {
+        this.index = index;
+        this.workers = ports.length;
+        this.peers = new DataOutputStream[workers];
+        for (int w = 0; w < workers; w++) {
+            if (w != index) {
+                Socket socket = new Socket(InetAddress.getLoopbackAddress(), ports[w]);
+                socket.setTcpNoDelay(true);
+                peers[w] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+                peers[w].writeInt(index);
+                peers[w].flush();
+            }
+        }
+        for (int w = 0; w < workers - 1; w++) {
+            Socket socket = server.accept();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            int sender = in.readInt();
+            Thread reader = new Thread(() -> read(sender, in), "peer-" + sender);
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    /**
+     * Reads batches from another worker until it goes away, then tells the search so
+     * it doesn't wait for that worker forever
+     */
+    private void read(int sender, DataInputStream in) {
+        try {
+            while (true) {
+                int count = in.readInt();
+                byte[] records = new byte[count * (keyLength + Integer.BYTES + 1)];
+                in.readFully(records);
+                inbox.add(new Batch(sender, count, records));
+            }
+        }
+        catch (EOFException e) {
+            // The other worker is done, which only matters if a layer is still waiting on it
+        }
+        catch (IOException e) {
+            System.err.println("Worker " + index + " lost worker " + sender + ": " + e.getMessage());
+        }
+        inbox.add(new Batch(sender, LOST, null));
+    }
+
+    /**
+     * Starts over with a new puzzle, keeping the start if it belongs to this worker
+     */
+    private void load(String query, Path root) throws IOException {
+        Configuration config = PuzzleRequest.parse(query).load(root);
+        if (!(config instanceof EncodableConfiguration encodable)) {
+            throw new IOException(config.getClass().getSimpleName() + " can't be written as keys");
+        }
+        start = encodable;
+        keyLength = start.getKeyLength();
+        arena = new StateArena(keyLength);
+        parentWorkers = new int[1024];
+        layerStart = 0;
+        goal = -1;
+        byte[] key = new byte[keyLength];
+        start.writeKey(key, 0);
+        if (ownerOf(key, 0, keyLength, workers) == index) {
+            add(key, 0, NO_WORKER, StateArena.NO_PARENT, false);
+        }
+    }
+
+    /**
+     * Gets the worker a key belongs to. The arena picks its slots from the high half of
+     * the same hash, so the low half is used here to keep them independent.
+     * @param key array holding the key
+     * @param offset position of the first byte of the key
+     * @param length length of the key
+     * @param workers The number of workers
+     * @return the index of the worker
+     */
+    static int ownerOf(byte[] key, int offset, int length, int workers) {
+        return Math.floorMod((int) KeyBytes.hash(key, offset, length), workers);
+    }
+
+    /**
+     * Adds a configuration if this worker hasn't seen it yet
+     * @return T/F value for if it was new
+     */
+    private boolean add(byte[] key, int offset, int parentWorker, int parentId, boolean solution) {
+        int id = arena.add(key, offset, parentId);
+        if (id < 0) {
+            return false;
+        }
+        if (id == parentWorkers.length) {
+            parentWorkers = Arrays.copyOf(parentWorkers, id * 2);
+        }
+        parentWorkers[id] = parentWorker;
+        if (solution && goal < 0) {
+            goal = id;
+        }
+        return true;
+    }
+
+    /**
+     * Expands the layer, sends the neighbors to their owners and takes in the ones sent here
+     * @param out Where the counts of the layer are written for the coordinator
+     */
+    private void expand(DataOutputStream out) throws IOException, InterruptedException {
+        int layerEnd = arena.size();
+        int recordLength = keyLength + Integer.BYTES + 1;
+        byte[][] batches = new byte[workers][BATCH * recordLength];
+        int[] counts = new int[workers];
+        byte[] key = new byte[keyLength];
+        byte[] scratch = new byte[keyLength];
+        long generated = 0;
+        long added = 0;
+
+        try {
+            try {
+                for (int id = layerStart; id < layerEnd; id++) {
+                    arena.readKey(id, key, 0);
+                    int parent = id;
+                    long[] fresh = {0};
+                    generated += start.forEachNeighborKey(key, 0, scratch, (neighbor, offset, solution) -> {
+                        int owner = ownerOf(neighbor, offset, keyLength, workers);
+                        if (owner == index) {
+                            if (add(neighbor, offset, index, parent, solution)) {
+                                fresh[0]++;
+                            }
+                            return true;
+                        }
+                        byte[] batch = batches[owner];
+                        int at = counts[owner] * recordLength;
+                        System.arraycopy(neighbor, offset, batch, at, keyLength);
+                        KeyBytes.putInt(batch, at + keyLength, parent);
+                        batch[at + keyLength + Integer.BYTES] = (byte) (solution ? 1 : 0);
+                        if (++counts[owner] == BATCH) {
+                            sendUnchecked(owner, batches[owner], counts[owner]);
+                            counts[owner] = 0;
+                        }
+                        return true;
+                    });
+                    added += fresh[0];
+                }
+            }
+            catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            // Whatever is left goes out before the end of the layer
+            for (int w = 0; w < workers; w++) {
+                if (w != index && counts[w] > 0) {
+                    send(w, batches[w], counts[w]);
+                }
+            }
+        }
+        finally {
+            endLayer();
+        }
+
+        int ended = 0;
+        while (ended < workers - 1) {
+            Batch batch = inbox.poll(PEER_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            if (batch == null) {
+                throw new IOException("Heard nothing from the other workers for " + PEER_TIMEOUT.toSeconds() + " seconds");
+            }
+            if (batch.count() == LOST) {
+                throw new IOException("Lost worker " + batch.sender());
+            }
+            if (batch.count() == 0) {
+                ended++;
+            }
+            for (int i = 0; i < batch.count(); i++) {
+                int at = i * recordLength;
+                if (add(batch.records(), at, batch.sender(), KeyBytes.getInt(batch.records(), at + keyLength),
+                        batch.records()[at + keyLength + Integer.BYTES] != 0)) {
+                    added++;
+                }
+            }
+        }
+
+        out.writeByte(OK);
+        out.writeLong(layerEnd - layerStart);
+        out.writeLong(generated);
+        out.writeLong(added);
+        out.writeInt(goal);
+        layerStart = layerEnd;
+    }
+
+    /**
+     * Sends an empty batch to every other worker to end the layer, even if this one
+     * failed. A worker that can't be reached is noticed by the thread reading from it.
+     */
+    private void endLayer() {
+        for (int w = 0; w < workers; w++) {
+            if (w != index) {
+                try {
+                    peers[w].writeInt(0);
+                    peers[w].flush();
+                }
+                catch (IOException e) {
+                    // Its reader puts LOST in the inbox
+                }
+            }
+        }
+    }
+
+    private void send(int worker, byte[] records, int count) throws IOException {
+        peers[worker].writeInt(count);
+        peers[worker].write(records, 0, count * (keyLength + Integer.BYTES + 1));
+    }
+
+    /**
+     * Sends a batch from inside a neighbor visitor, which can't throw IOException
+     */
+    private void sendUnchecked(int worker, byte[] records, int count) {
+        try {
+            send(worker, records, count);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Could not send to worker " + worker, e);
+        }
+    }
+
+    /**
+     * Takes commands from the coordinator until it says to quit or goes away
+     */
+    private void serve(Socket control) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(control.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(control.getOutputStream()));
+        while (true) {
+            byte command;
+            try {
+                command = in.readByte();
+            }
+            catch (EOFException e) {
+                return;
+            }
+            try {
+                if (command == PEERS) {
+                    int me = in.readInt();
+                    int[] ports = new int[in.readInt()];
+                    for (int w = 0; w < ports.length; w++) {
+                        ports[w] = in.readInt();
+                    }
+                    connect(me, ports);
+                    out.writeByte(OK);
+                }
+                else if (command == LOAD) {
+                    String query = in.readUTF();
+                    Path root = Path.of(in.readUTF());
+                    load(query, root);
+                    out.writeByte(OK);
+                    out.writeInt(arena.size());
+                }
+                else if (command == EXPAND) {
+                    expand(out);
+                }
+                else if (command == NODE) {
+                    int id = in.readInt();
+                    byte[] key = new byte[keyLength];
+                    arena.readKey(id, key, 0);
+                    out.writeByte(OK);
+                    out.write(key);
+                    out.writeInt(parentWorkers[id]);
+                    out.writeInt(arena.parent(id));
+                }
+                else if (command == QUIT) {
+                    out.writeByte(OK);
+                    out.flush();
+                    return;
+                }
+                else {
+                    throw new IOException("Unknown command " + command);
+                }
+            }
+            catch (IOException | RuntimeException e) {
+                out.writeByte(ERROR);
+                out.writeUTF(String.valueOf(e.getMessage()));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            out.flush();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        try (ServerSocket server = new ServerSocket()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 64);
+            System.out.println("port " + server.getLocalPort());
+            System.out.flush();
+            BfsWorker worker = new BfsWorker(server);
+            try (Socket control = server.accept()) {
+                control.setTcpNoDelay(true);
+                worker.serve(control);
+            }
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,146 @@
+package puzzles.distributed;
+
+import puzzles.batch.PuzzleInstances;
+import puzzles.common.solver.Solver;
+import puzzles.common.solver.SolverResult;
+import puzzles.service.PuzzleRequest;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Solves puzzle files, folders of them and instance names like crossing-95-73 with a
+ * DistributedSolver, and prints a line for each. With --check every puzzle is solved
+ * again by Solver.solve in this process and the numbers of moves have to agree.
+ */
+public class DistributedSolve {
+    /** Number of workers if none is asked for */
+    public static final int DEFAULT_WORKERS = 4;
+
+    public static void main(String[] args) throws Exception {
+        int workers = DEFAULT_WORKERS;
+        boolean check = false;
+        List<String> jvmOptions = new ArrayList<>();
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-w") && i + 1 < args.length) {
+                workers = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("-J") && i + 1 < args.length) {
+                jvmOptions.add(args[++i]);
+            }
+            else if (args[i].equals("--check")) {
+                check = true;
+            }
+            else {
+                inputs.add(args[i]);
+            }
+        }
+        if (inputs.isEmpty() || workers < 1) {
+            System.out.println("Usage: java DistributedSolve [-w workers] [-J jvmOption] [--check] puzzle...");
+            return;
+        }
+
+        List<String[]> puzzles = new ArrayList<>();
+        try {
+            for (String input: inputs) {
+                puzzles.addAll(queriesOf(input));
+            }
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.exit(2);
+        }
+
+        Path root = Path.of(".");
+        int width = Math.max(8, puzzles.stream().mapToInt(puzzle -> puzzle[0].length()).max().orElse(0));
+        String format = "%-" + width + "s %7s %14s %14s %10s%s%n";
+        int failures = 0;
+        long begin = System.nanoTime();
+        try (DistributedSolver solver = new DistributedSolver(workers, jvmOptions)) {
+            System.out.printf(format, "puzzle", "moves", "total", "unique", "ms", check ? "  solve" : "");
+            for (String[] puzzle: puzzles) {
+                long start = System.nanoTime();
+                try {
+                    SolverResult result = solver.solve(puzzle[1], root);
+                    long nanos = System.nanoTime() - start;
+                    String verdict = "";
+                    if (check) {
+                        SolverResult expected = new Solver().solve(PuzzleRequest.parse(puzzle[1]).load(root));
+                        verdict = "  " + (moves(expected) == moves(result) ? "ok" : "expected " + movesText(expected));
+                        if (moves(expected) != moves(result)) {
+                            failures++;
+                        }
+                    }
+                    System.out.printf(format, puzzle[0], movesText(result),
+                            String.format("%,d", result.getStats().getGenerated()),
+                            String.format("%,d", result.getStats().getUnique()),
+                            String.format("%,.1f", nanos / 1e6), verdict);
+                }
+                catch (IOException e) {
+                    failures++;
+                    System.out.printf(format, puzzle[0], "-", "-", "-", "-", "  " + e.getMessage());
+                }
+            }
+        }
+        System.out.printf("%d puzzles on %d worker%s in %,d ms, %d failed%n", puzzles.size(), workers,
+                workers == 1 ? "" : "s", (System.nanoTime() - begin) / 1_000_000, failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Turns an argument into the puzzles it names
+     * @param input A file, a folder or an instance name
+     * @return the name and query string of each puzzle
+     * @throws IOException if a folder can't be read
+     */
+    private static List<String[]> queriesOf(String input) throws IOException {
+        Path path = Path.of(input);
+        if (!Files.exists(path)) {
+            String puzzle = PuzzleInstances.puzzleOf(input);
+            if (!puzzle.equals("crossing") && !puzzle.equals("strings")) {
+                throw new IllegalArgumentException("No puzzle file " + input);
+            }
+            return List.<String[]>of(new String[]{input, "instance=" + URLEncoder.encode(input, StandardCharsets.UTF_8)});
+        }
+
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(path)) {
+            files = paths.filter(file -> Files.isRegularFile(file) && file.toString().endsWith(".txt"))
+                    .sorted().collect(Collectors.toList());
+        }
+        List<String[]> queries = new ArrayList<>();
+        for (Path file: files) {
+            String name = file.getFileName().toString().replaceFirst("\\.txt$", "");
+            String puzzle = PuzzleInstances.puzzleOf(name);
+            if (!puzzle.equals("hoppers") && !puzzle.equals("slide") && file.getParent() != null) {
+                puzzle = file.getParent().getFileName().toString();
+            }
+            if (!puzzle.equals("hoppers") && !puzzle.equals("slide")) {
+                throw new IllegalArgumentException("Can't tell what puzzle " + file + " is");
+            }
+            queries.add(new String[]{name, "puzzle=" + puzzle + "&file=" + URLEncoder.encode(file.toString(), StandardCharsets.UTF_8)});
+        }
+        return queries;
+    }
+
+    /**
+     * Gets the number of moves of a result, -1 if it has no solution
+     */
+    private static int moves(SolverResult result) {
+        return result.isSolved() ? result.getPath().size() - 1 : PuzzleInstances.NO_SOLUTION;
+    }
+
+    private static String movesText(SolverResult result) {
+        return result.isSolved() ? String.valueOf(moves(result)) : "none";
+    }
+}
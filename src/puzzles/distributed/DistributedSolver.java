@@ -0,0 +1,312 @@
+package puzzles.distributed;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.EncodableConfiguration;
+import puzzles.common.solver.SolverResult;
+import puzzles.common.solver.SolverStats;
+import puzzles.service.PuzzleRequest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Breadth first search spread over worker processes on this machine, so the visited
+ * configurations aren't limited to one heap. The coordinator starts the workers, runs
+ * the search a layer at a time and puts the path back together from the parents the
+ * workers remember. Each worker owns the configurations whose key hashes to it, see
+ * BfsWorker. The workers are kept for every puzzle solved until the solver is closed.
+ *
+ * Layers are searched the same as Solver.solve does, so the path has the same number
+ * of moves, though when there are several shortest paths it may be another one.
+ * Once a worker fails during a solve the workers are out of step, so the solver can't
+ * be used again and a new one has to be made.
+ */
+public class DistributedSolver implements AutoCloseable {
+    private final List<Process> processes = new ArrayList<>();
+    private final List<Socket> sockets = new ArrayList<>();
+    /** Replies from each worker */
+    private final DataInputStream[] in;
+    /** Commands to each worker */
+    private final DataOutputStream[] out;
+    /** The counters of the current solve, or of the last one once it is finished */
+    private volatile SolverStats stats = new SolverStats();
+    /** Why the workers can't be used any more, null while they can */
+    private IOException failure;
+
+    /**
+     * Starts the workers with the same JVM options as this one
+     * @param workers The number of worker processes
+     * @throws IOException if a worker can't be started or reached
+     */
+    public DistributedSolver(int workers) throws IOException {
+        this(workers, List.of());
+    }
+
+    /**
+     * Starts the workers and connects them to each other
+     * @param workers The number of worker processes
+     * @param jvmOptions Options for the worker JVMs, such as -Xmx4g
+     * @throws IOException if a worker can't be started or reached
+     */
+    public DistributedSolver(int workers, List<String> jvmOptions) throws IOException {
+        if (workers < 1) {
+            throw new IllegalArgumentException("There has to be at least one worker");
+        }
+        this.in = new DataInputStream[workers];
+        this.out = new DataOutputStream[workers];
+        try {
+            int[] ports = new int[workers];
+            for (int w = 0; w < workers; w++) {
+                Process process = new ProcessBuilder(workerCommand(jvmOptions))
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start();
+                processes.add(process);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+                String line = reader.readLine();
+                if (line == null || !line.startsWith("port ")) {
+                    throw new IOException("Worker " + w + " didn't start");
+                }
+                ports[w] = Integer.parseInt(line.substring("port ".length()));
+            }
+
+            // Every worker takes its coordinator first, so only then do they connect to each other
+            for (int w = 0; w < workers; w++) {
+                Socket socket = new Socket(InetAddress.getLoopbackAddress(), ports[w]);
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                in[w] = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                out[w] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            }
+            for (int w = 0; w < workers; w++) {
+                out[w].writeByte(BfsWorker.PEERS);
+                out[w].writeInt(w);
+                out[w].writeInt(workers);
+                for (int port: ports) {
+                    out[w].writeInt(port);
+                }
+                out[w].flush();
+            }
+            for (int w = 0; w < workers; w++) {
+                expectOk(w);
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the command that starts a worker, on the module path if this class was loaded from it
+     */
+    private static List<String> workerCommand(List<String> jvmOptions) {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command()
+                .orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        command.addAll(jvmOptions);
+        Module module = BfsWorker.class.getModule();
+        if (module.isNamed()) {
+            command.add("-p");
+            command.add(System.getProperty("jdk.module.path"));
+            command.add("-m");
+            command.add(module.getName() + "/" + BfsWorker.class.getName());
+        }
+        else {
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(BfsWorker.class.getName());
+        }
+        return command;
+    }
+
+    /**
+     * Solves a puzzle across the workers
+     * @param query The puzzle written like a query string, see PuzzleRequest
+     * @param root Folder that puzzle files are read from
+     * @return The path to solution and the counters of the solve
+     * @throws IOException if the puzzle can't be read or a worker fails
+     */
+    public SolverResult solve(String query, Path root) throws IOException {
+        if (failure != null) {
+            throw new IOException("The workers failed in an earlier solve: " + failure.getMessage());
+        }
+        SolverStats stats = new SolverStats();
+        this.stats = stats;
+        Configuration config = PuzzleRequest.parse(query).load(root);
+        if (!(config instanceof EncodableConfiguration start)) {
+            throw new IOException(config.getClass().getSimpleName() + " can't be written as keys");
+        }
+        if (start.isSolution()) {
+            stats.finish();
+            return new SolverResult(new LinkedList<>(List.of(start)), stats);
+        }
+        try {
+            return search(query, root, start, stats);
+        }
+        catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    /**
+     * Loads the puzzle on every worker and searches it a layer at a time
+     * @param start The start of the puzzle, already loaded here
+     * @param stats The counters of the solve
+     * @return The path to solution and the counters of the solve
+     */
+    private SolverResult search(String query, Path root, EncodableConfiguration start, SolverStats stats)
+            throws IOException {
+        String folder = root.toAbsolutePath().toString();
+        for (DataOutputStream command: out) {
+            command.writeByte(BfsWorker.LOAD);
+            command.writeUTF(query);
+            command.writeUTF(folder);
+            command.flush();
+        }
+        IOException failed = null;
+        for (int w = 0; w < in.length; w++) {
+            try {
+                expectOk(w);
+                in[w].readInt();
+            }
+            catch (IOException e) {
+                failed = failed == null ? e : failed;
+            }
+        }
+        if (failed != null) {
+            throw failed;
+        }
+
+        // Every worker has to finish a layer before any of them starts the next one
+        long depth = 0;
+        long visited = 1;
+        while (true) {
+            for (DataOutputStream command: out) {
+                command.writeByte(BfsWorker.EXPAND);
+                command.flush();
+            }
+            long added = 0;
+            int goalWorker = -1;
+            int goalId = -1;
+            // Every reply is read, even after one failed, so none of them is left in its stream
+            for (int w = 0; w < in.length; w++) {
+                try {
+                    expectOk(w);
+                    stats.expanded(in[w].readLong());
+                    stats.generated(in[w].readLong());
+                    added += in[w].readLong();
+                    int goal = in[w].readInt();
+                    if (goal >= 0 && goalWorker < 0) {
+                        goalWorker = w;
+                        goalId = goal;
+                    }
+                }
+                catch (IOException e) {
+                    failed = failed == null ? e : failed;
+                }
+            }
+            if (failed != null) {
+                throw failed;
+            }
+            stats.unique(added);
+            visited += added;
+            stats.frontier(added);
+            stats.visited(visited);
+            stats.depth(++depth);
+            if (goalWorker >= 0) {
+                List<Configuration> path = buildPath(start, goalWorker, goalId);
+                stats.finish();
+                return new SolverResult(path, stats);
+            }
+            if (added == 0) {
+                stats.finish();
+                return new SolverResult(null, stats);
+            }
+        }
+    }
+
+    /**
+     * Asks the workers for the parents of the goal, back to the start
+     * @param codec The start of the puzzle, used to rebuild configurations from keys
+     * @return List representation of the path to solution
+     */
+    private List<Configuration> buildPath(EncodableConfiguration codec, int worker, int id) throws IOException {
+        List<Configuration> path = new LinkedList<>();
+        byte[] key = new byte[codec.getKeyLength()];
+        while (worker != BfsWorker.NO_WORKER) {
+            out[worker].writeByte(BfsWorker.NODE);
+            out[worker].writeInt(id);
+            out[worker].flush();
+            expectOk(worker);
+            in[worker].readFully(key);
+            path.add(0, codec.fromKey(key, 0));
+            int parentWorker = in[worker].readInt();
+            id = in[worker].readInt();
+            worker = parentWorker;
+        }
+        return path;
+    }
+
+    /**
+     * Reads the reply of a worker and throws what went wrong if it failed
+     */
+    private void expectOk(int worker) throws IOException {
+        if (in[worker].readByte() != BfsWorker.OK) {
+            throw new IOException("Worker " + worker + ": " + in[worker].readUTF());
+        }
+    }
+
+    /**
+     * Gets the counters of the current solve, or of the last one once it is finished
+     * @return The counters of the solve
+     */
+    public SolverStats getStats() {
+        return stats;
+    }
+
+    public int getWorkers() {
+        return in.length;
+    }
+
+    /**
+     * Tells the workers to quit and waits a little for them, ending the ones that don't
+     */
+    @Override
+    public void close() {
+        for (int w = 0; w < sockets.size(); w++) {
+            try {
+                out[w].writeByte(BfsWorker.QUIT);
+                out[w].flush();
+                sockets.get(w).close();
+            }
+            catch (IOException e) {
+                // Ended below
+            }
+        }
+        for (Process process: processes) {
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            }
+            catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -1,4 +1,8 @@
 package puzzles.hoppers.gui;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
@@ -9,7 +13,9 @@ import javafx.scene.layout.*;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextAlignment;
 import javafx.stage.FileChooser;
+import javafx.util.Duration;
 import puzzles.common.Observer;
+import puzzles.common.solver.SolverStats;
 import puzzles.hoppers.model.HoppersModel;
 
 import javafx.application.Application;
@@ -17,6 +23,9 @@ import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 /**
@@ -39,6 +48,20 @@ public class HoppersGUI extends Application implements Observer<HoppersModel, St
     private Image lilyPad = new Image(getClass().getResourceAsStream(RESOURCES_DIR+"lily_pad.png"));
     /** Water picture */
     private Image water = new Image(getClass().getResourceAsStream(RESOURCES_DIR+"water.png"));
+    /** How often the solver progress is shown while a hint is solving */
+    private final static Duration PROGRESS_INTERVAL = Duration.millis(200);
+    /** Background thread that solves hints so the window doesn't freeze */
+    private final ExecutorService solverThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hoppers-hint");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** T/F value for if a hint is being solved, extra hint clicks are ignored until it finishes */
+    private final AtomicBoolean solving = new AtomicBoolean(false);
+    /** Label showing the solver progress */
+    private Label progress = new Label();
+    /** Timer that refreshes the progress label while a hint is solving */
+    private Timeline progressTimer;
 
     /**
      * Method that will recreate the gridpane after every move
@@ -46,17 +69,17 @@ public class HoppersGUI extends Application implements Observer<HoppersModel, St
      */
     private GridPane makeGridPane() {
         GridPane gridPane = new GridPane();
-        char[][] grid = model.currentConfig.getGrid();
         for (int row = 0; row < model.currentConfig.getRows(); ++row) {
             for (int col = 0; col < model.currentConfig.getCols(); ++col) {
                 PlayerButton button = new PlayerButton(row, col);
-                if (grid[row][col] == '.'){
+                char cell = model.currentConfig.getCell(row, col);
+                if (cell == '.'){
                     button.setGraphic(new ImageView((lilyPad)));
                 }
-                else if (grid[row][col] == '*') {
+                else if (cell == '*') {
                     button.setGraphic(new ImageView(water));
                 }
-                else if (grid[row][col] == 'R'){
+                else if (cell == 'R'){
                     button.setGraphic(new ImageView(redFrog));
                 }
                 else{
@@ -116,13 +139,19 @@ public class HoppersGUI extends Application implements Observer<HoppersModel, St
         reset.setOnAction((event -> {try{this.model.reset();} catch(IOException e){}}));
 
         Button hint = new Button("Hint");
-        hint.setOnAction((event -> {this.model.hint();}));
+        hint.setOnAction((event -> requestHint()));
 
-        HBox hbox = new HBox(load, reset, hint);
+        Button cancel = new Button("Cancel");
+        cancel.setOnAction((event -> this.model.cancelHint()));
+
+        progressTimer = new Timeline(new KeyFrame(PROGRESS_INTERVAL, event -> showProgress()));
+        progressTimer.setCycleCount(Animation.INDEFINITE);
+
+        HBox hbox = new HBox(load, reset, hint, cancel, progress);
         hbox.setAlignment(Pos.CENTER);
         mainPane.setBottom(hbox);
 
-        String[] words = HoppersModel.lastRefresh.split("/");
+        String[] words = this.model.getLastRefresh().split("/");
         String text = "Loaded: " + words[2];
         this.Title = new Label();
         this.Title.setText(text);
@@ -136,13 +165,59 @@ public class HoppersGUI extends Application implements Observer<HoppersModel, St
         stage.show();
     }
 
+    /**
+     * Solves a hint on the background thread, a hint that is already solving takes the place of this one
+     */
+    private void requestHint() {
+        if (!solving.compareAndSet(false, true)){
+            return;
+        }
+        progressTimer.play();
+        solverThread.execute(() -> {
+            try{
+                this.model.hint();
+            }
+            finally{
+                solving.set(false);
+                Platform.runLater(() -> {
+                    progressTimer.stop();
+                    progress.setText("");
+                });
+            }
+        });
+    }
+
+    /**
+     * Shows the counters of the hint that is solving
+     */
+    private void showProgress() {
+        SolverStats stats = this.model.getHintStats();
+        if (stats != null){
+            progress.setText(String.format(" Solving... %,d configs (%,.0f/s)", stats.getUnique(), stats.getConfigsPerSecond()));
+        }
+    }
+
     @Override
     /**
-     * Update method for gui
+     * Update method for gui, the model may call it from the hint thread
      */
     public void update(HoppersModel hoppersModel, String msg) {
-        this.Title.setText(msg);
-        mainPane.setCenter(makeGridPane());
+        if (Platform.isFxApplicationThread()){
+            this.Title.setText(msg);
+            mainPane.setCenter(makeGridPane());
+        }
+        else{
+            Platform.runLater(() -> update(hoppersModel, msg));
+        }
+    }
+
+    @Override
+    /**
+     * Stops any hint that is solving when the window closes
+     */
+    public void stop() {
+        this.model.cancelHint();
+        solverThread.shutdownNow();
     }
 
     public static void main(String[] args) {
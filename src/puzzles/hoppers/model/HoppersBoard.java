@@ -0,0 +1,332 @@
+package puzzles.hoppers.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * class that holds the shape of a hoppers board, shared by every config on that board
+ * Lily pads get a bit index in row major order, and every jump the shape allows is worked out once
+ */
+public final class HoppersBoard {
+    /** Most lily pads a board can have, one per bit of a long */
+    public static final int MAX_PADS = Long.SIZE;
+    /** Row and column offsets of the landing spot for each direction, in the order jumps are tried */
+    private static final int[][] DIRECTIONS = {
+            {0, -4}, {-2, -2}, {-4, 0}, {-2, 2}, {0, 4}, {2, 2}, {4, 0}, {2, -2}
+    };
+    /** Boards that were already built, keyed by their shape */
+    private static final Map<String, HoppersBoard> BOARDS = new ConcurrentHashMap<>();
+
+    /** Number of rows on the board */
+    private final int rows;
+    /** Number of columns on the board */
+    private final int cols;
+    /** Bit index of each spot, -1 for water */
+    private final int[][] index;
+    /** Row of each lily pad */
+    private final int[] padRow;
+    /** Column of each lily pad */
+    private final int[] padCol;
+    /** Bits of every lily pad */
+    private final long pads;
+    /** Start of each lily pad's jumps in the jump tables, with one extra entry at the end */
+    private final int[] firstJump;
+    /** Lily pad the frog is jumped over for each jump */
+    private final int[] jumpOver;
+    /** Lily pad the frog lands on for each jump */
+    private final int[] jumpTo;
+    /** Lily pad each lily pad is moved to by every reflection or rotation the board looks the same in, besides leaving it alone */
+    private final int[][] symmetries;
+    /** Order jumps are pruned in, the same for every jump the symmetries turn into each other */
+    private final int[] jumpRank;
+    /** Class of each lily pad, the lily pads a frog on it can ever reach */
+    private final int[] padClass;
+    /** Bits of the lily pads whose frogs could jump over a frog of each class */
+    private final long[] jumpers;
+
+    /**
+     * Builds the board for a shape
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param water T/F grid of which spots are water
+     */
+    private HoppersBoard(int rows, int cols, boolean[][] water){
+        this.rows = rows;
+        this.cols = cols;
+        this.index = new int[rows][cols];
+        List<int[]> spots = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (water[i][j]){
+                    index[i][j] = -1;
+                }
+                else{
+                    index[i][j] = spots.size();
+                    spots.add(new int[]{i, j});
+                }
+            }
+        }
+        int size = spots.size();
+        this.padRow = new int[size];
+        this.padCol = new int[size];
+        this.pads = size == MAX_PADS ? -1L : (1L << size) - 1;
+
+        // Frogs on even rows can jump in all eight directions, frogs on odd rows only diagonally
+        List<int[]> jumps = new ArrayList<>();
+        this.firstJump = new int[size + 1];
+        for (int p = 0; p < size; p++){
+            int i = spots.get(p)[0];
+            int j = spots.get(p)[1];
+            padRow[p] = i;
+            padCol[p] = j;
+            firstJump[p] = jumps.size();
+            for (int[] d : DIRECTIONS){
+                boolean diagonal = d[0] != 0 && d[1] != 0;
+                int ei = i + d[0];
+                int ej = j + d[1];
+                if ((i % 2 == 0 || diagonal) && isPad(ei, ej)){
+                    int over = index[(i + ei) / 2][(j + ej) / 2];
+                    if (over >= 0){
+                        jumps.add(new int[]{over, index[ei][ej]});
+                    }
+                }
+            }
+        }
+        firstJump[size] = jumps.size();
+        this.jumpOver = new int[jumps.size()];
+        this.jumpTo = new int[jumps.size()];
+        for (int k = 0; k < jumps.size(); k++){
+            jumpOver[k] = jumps.get(k)[0];
+            jumpTo[k] = jumps.get(k)[1];
+        }
+        this.symmetries = findSymmetries();
+        this.jumpRank = rankJumps();
+
+        // A frog only ever jumps between the lily pads of its class
+        this.padClass = new int[size];
+        Arrays.fill(padClass, -1);
+        int classes = 0;
+        int[] stack = new int[size];
+        for (int p = 0; p < size; p++){
+            if (padClass[p] < 0){
+                int top = 0;
+                stack[top++] = p;
+                padClass[p] = classes;
+                while (top > 0){
+                    int q = stack[--top];
+                    for (int k = firstJump[q]; k < firstJump[q + 1]; k++){
+                        if (padClass[jumpTo[k]] < 0){
+                            padClass[jumpTo[k]] = classes;
+                            stack[top++] = jumpTo[k];
+                        }
+                    }
+                }
+                classes++;
+            }
+        }
+        long[] classPads = new long[classes];
+        for (int p = 0; p < size; p++){
+            classPads[padClass[p]] |= 1L << p;
+        }
+        this.jumpers = new long[classes];
+        for (int p = 0; p < size; p++){
+            for (int k = firstJump[p]; k < firstJump[p + 1]; k++){
+                jumpers[padClass[jumpOver[k]]] |= classPads[padClass[p]];
+            }
+        }
+    }
+
+    /**
+     * Tries every flip and rotation of the board, and every turn a quarter of the way around too if
+     * the board is square. One is kept if it moves water onto water and every jump onto another jump
+     * @return the lily pad each lily pad is moved to, for each one that is kept
+     */
+    private int[][] findSymmetries(){
+        int size = padRow.length;
+        List<int[]> found = new ArrayList<>();
+        int transforms = rows == cols ? 8 : 4;
+        for (int t = 1; t < transforms; t++){
+            int[] moved = new int[size];
+            boolean same = true;
+            for (int p = 0; p < size && same; p++){
+                int r = padRow[p];
+                int c = padCol[p];
+                if (t >= 4){
+                    int swap = r;
+                    r = c;
+                    c = swap;
+                }
+                if ((t & 1) != 0){
+                    c = cols - 1 - c;
+                }
+                if ((t & 2) != 0){
+                    r = rows - 1 - r;
+                }
+                same = isPad(r, c);
+                if (same){
+                    moved[p] = index[r][c];
+                }
+            }
+            for (int p = 0; p < size && same; p++){
+                for (int k = firstJump[p]; k < firstJump[p + 1] && same; k++){
+                    same = findJump(moved[p], moved[jumpOver[k]], moved[jumpTo[k]]) >= 0;
+                }
+            }
+            if (same){
+                found.add(moved);
+            }
+        }
+        return found.toArray(new int[0][]);
+    }
+
+    /**
+     * Gives each jump the smallest index of the jumps the symmetries turn it into
+     * @return rank of each jump
+     */
+    private int[] rankJumps(){
+        int[] rank = new int[jumpTo.length];
+        for (int p = 0; p < padRow.length; p++){
+            for (int k = firstJump[p]; k < firstJump[p + 1]; k++){
+                rank[k] = k;
+                for (int[] moved : symmetries){
+                    rank[k] = Math.min(rank[k], findJump(moved[p], moved[jumpOver[k]], moved[jumpTo[k]]));
+                }
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Finds the jump from one lily pad over another onto a third
+     * @param from lily pad the frog jumps from
+     * @param over lily pad the frog jumps over
+     * @param to lily pad the frog lands on
+     * @return index of the jump, -1 if there is no such jump
+     */
+    int findJump(int from, int over, int to){
+        for (int k = firstJump[from]; k < firstJump[from + 1]; k++){
+            if (jumpOver[k] == over && jumpTo[k] == to){
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks to see if a layout of frogs can never be solved. The last frog standing can't
+     * be green, so there has to be a red frog, and every green frog needs another frog in a
+     * class that can jump over its class
+     * @param greens lily pads with a green frog
+     * @param reds lily pads with a red frog
+     * @return T/F value for if the layout can't reach a solution
+     */
+    boolean isDead(long greens, long reds){
+        if (greens == 0){
+            return false;
+        }
+        if (reds == 0){
+            return true;
+        }
+        long frogs = greens | reds;
+        for (long left = greens; left != 0; left &= left - 1){
+            long frog = left & -left;
+            if ((frogs & ~frog & jumpers[padClass[Long.numberOfTrailingZeros(left)]]) == 0){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the shared board for a shape, building it the first time the shape is seen
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param water T/F grid of which spots are water
+     * @return board for the shape
+     */
+    static HoppersBoard of(int rows, int cols, boolean[][] water){
+        StringBuilder key = new StringBuilder().append(rows).append('x').append(cols).append(':');
+        for (boolean[] row : water){
+            for (boolean w : row){
+                key.append(w ? '*' : '.');
+            }
+        }
+        return BOARDS.computeIfAbsent(key.toString(), k -> new HoppersBoard(rows, cols, water));
+    }
+
+    /**
+     * Checks to see if a spot is a lily pad on the board
+     * @param r row
+     * @param c column
+     * @return T/F value for if the spot is in bounds and not water
+     */
+    boolean isPad(int r, int c){
+        return r >= 0 && r < rows && c >= 0 && c < cols && index[r][c] >= 0;
+    }
+
+    /**
+     * Gets the bit index of a spot
+     * @param r row
+     * @param c column
+     * @return the bit index, -1 for water
+     */
+    int index(int r, int c){
+        return index[r][c];
+    }
+
+    int padRow(int p){
+        return padRow[p];
+    }
+
+    int padCol(int p){
+        return padCol[p];
+    }
+
+    long pads(){
+        return pads;
+    }
+
+    int firstJump(int p){
+        return firstJump[p];
+    }
+
+    int jumpOver(int k){
+        return jumpOver[k];
+    }
+
+    int jumpTo(int k){
+        return jumpTo[k];
+    }
+
+    /**
+     * Gets the number of ways the board can be turned or flipped and look the same
+     * @return number of symmetries, 1 if the board only looks the same left alone
+     */
+    int symmetryCount(){
+        return symmetries.length + 1;
+    }
+
+    /**
+     * Gets where a reflection or rotation the board looks the same in moves each lily pad
+     * @param s which symmetry, from 1 to symmetryCount() - 1
+     * @return the lily pad each lily pad is moved to
+     */
+    int[] symmetry(int s){
+        return symmetries[s - 1];
+    }
+
+    int jumpRank(int k){
+        return jumpRank[k];
+    }
+
+    int getRows(){
+        return rows;
+    }
+
+    int getCols(){
+        return cols;
+    }
+}
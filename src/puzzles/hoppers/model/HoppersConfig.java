@@ -1,25 +1,29 @@
 package puzzles.hoppers.model;
 
+import puzzles.common.solver.CommutingConfiguration;
 import puzzles.common.solver.Configuration;
+import puzzles.common.solver.KeyBytes;
+import puzzles.common.solver.SymmetricConfiguration;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
-import java.util.LinkedList;
 import java.util.Scanner;
 
 
 /**
  * class that is responsible for creating and checking all the neighbors for a hoppers config
+ * The frogs are kept as bitboards over the lily pads of a shared HoppersBoard
+ * Boards that look the same flipped or turned let the solver visit each layout of frogs once
+ * The search also leaves out jumps that can never lead to a solution, or that only redo two jumps in the other order
  * @Author Jared Hugo
  */
-public class HoppersConfig implements Configuration{
-    /** Number of rows in a hopper config */
-    private static int rows;
-    /** Number of columns in a hopper config */
-    private static int cols;
-    /** Grid that resembles the board that is used for a config */
-    private char[][] grid;
+public class HoppersConfig implements SymmetricConfiguration, CommutingConfiguration{
+    /** Shape of the board and its jump tables */
+    private final HoppersBoard board;
+    /** Lily pads with a green frog on them */
+    private final long green;
+    /** Lily pads with a red frog on them */
+    private final long red;
 
     /**
      * Constructor to create the initial configuration for the hoppers puzzle
@@ -28,68 +32,50 @@ public class HoppersConfig implements Configuration{
      */
     public HoppersConfig(String filename) throws IOException {
         Scanner f = new Scanner(new File(filename));
-        rows = f.nextInt();
-        cols = f.nextInt();
-        grid = new char[rows][cols];
+        int rows = f.nextInt();
+        int cols = f.nextInt();
+        char[][] grid = new char[rows][cols];
+        boolean[][] water = new boolean[rows][cols];
+        int pads = 0;
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < cols; j++) {
                 grid[i][j] = f.next().charAt(0);
+                water[i][j] = grid[i][j] == '*';
+                if (!water[i][j]){
+                    pads++;
                 }
             }
+        }
+        if (pads > HoppersBoard.MAX_PADS){
+            throw new IOException("Boards with more than " + HoppersBoard.MAX_PADS + " lily pads are not supported");
+        }
+        this.board = HoppersBoard.of(rows, cols, water);
+        long greenBits = 0;
+        long redBits = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (grid[i][j] == 'G'){
+                    greenBits |= 1L << board.index(i, j);
+                }
+                else if (grid[i][j] == 'R'){
+                    redBits |= 1L << board.index(i, j);
+                }
+            }
+        }
+        this.green = greenBits;
+        this.red = redBits;
     }
 
     /**
-     * Copy constructor that is used to make every neighbor in the puzzle
-     * @param copy previous configuration that will be used for copying
-     * @param newrow the row that is being changed
-     * @param newcol the column that is being changed
-     * @param direction the direction of the jump
+     * Constructor for a config whose frogs are already placed, used for neighbors and moves
+     * @param board shape of the board
+     * @param green lily pads with a green frog
+     * @param red lily pads with a red frog
      */
-    public HoppersConfig(HoppersConfig copy, int newrow, int newcol, String direction){
-        this.grid = new char[rows][cols];
-        for (int row = 0; row < rows; row++){
-            System.arraycopy(copy.grid[row], 0, this.grid[row], 0, cols);
-        }
-        if (direction.equals("left")){
-            this.grid[newrow][newcol-4] = this.grid[newrow][newcol];
-            this.grid[newrow][newcol] = '.';
-            this.grid[newrow][newcol-2] = '.';
-        }
-        else if(direction.equals("up-left")){
-            this.grid[newrow-2][newcol-2] = this.grid[newrow][newcol];
-            this.grid[newrow][newcol] = '.';
-            this.grid[newrow-1][newcol-1] = '.';
-        }
-        else if(direction.equals("up")){
-            this.grid[newrow-4][newcol] = this.grid[newrow][newcol];
-            this.grid[newrow][newcol] = '.';
-            this.grid[newrow-2][newcol] = '.';
-        }
-        else if(direction.equals("up-right")){
-            this.grid[newrow-2][newcol+2] = this.grid[newrow][newcol];
-            this.grid[newrow][newcol] = '.';
-            this.grid[newrow-1][newcol+1] = '.';
-        }
-        else if(direction.equals("right")){
-            this.grid[newrow][newcol+4] = this.grid[newrow][newcol];
-            this.grid[newrow][newcol] = '.';
-            this.grid[newrow][newcol+2] = '.';
-        }
-        else if(direction.equals("down-right")){
-            this.grid[newrow+2][newcol+2] = this.grid[newrow][newcol];
-            this.grid[newrow][newcol] = '.';
-            this.grid[newrow+1][newcol+1] = '.';
-        }
-        else if(direction.equals("down")){
-            this.grid[newrow+4][newcol] = this.grid[newrow][newcol];
-            this.grid[newrow][newcol] = '.';
-            this.grid[newrow+2][newcol] = '.';
-        }
-        else{
-            this.grid[newrow+2][newcol-2] = this.grid[newrow][newcol];
-            this.grid[newrow][newcol] = '.';
-            this.grid[newrow+1][newcol-1] = '.';
-        }
+    private HoppersConfig(HoppersBoard board, long green, long red){
+        this.board = board;
+        this.green = green;
+        this.red = red;
     }
 
     @Override
@@ -98,87 +84,231 @@ public class HoppersConfig implements Configuration{
      * @return T/F value for if it is the solution
      */
     public boolean isSolution() {
-        boolean result = false;
-        int counter = 0;
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-              if (grid[i][j] == 'G'){
-                  counter++;
-              }
+        return green == 0;
+    }
+
+    @Override
+    /**
+     * Writes the key of every jump that can be made, in the same order the frogs and jumps are stored
+     * @return number of neighbors
+     */
+    public int forEachNeighborKey(byte[] key, int offset, byte[] scratch, NeighborVisitor visitor) {
+        return forEachJump(KeyBytes.getLong(key, offset), KeyBytes.getLong(key, offset + Long.BYTES), 0, -1, false, scratch, visitor);
+    }
+
+    @Override
+    /**
+     * Writes the key of every jump like the other forEachNeighborKey, but only for the search. It
+     * leaves out the jumps that land in a layout that can't be solved, and the jumps that don't touch
+     * any lily pad of the jump that was just made and are ranked below it. Those frogs could have
+     * jumped first, so the search reaches the same layout that way
+     * @return number of neighbors
+     */
+    public int forEachNeighborKey(byte[] parent, int parentOffset, byte[] key, int offset, byte[] scratch, NeighborVisitor visitor) {
+        long greens = KeyBytes.getLong(key, offset);
+        long reds = KeyBytes.getLong(key, offset + Long.BYTES);
+        long parentGreens = KeyBytes.getLong(parent, parentOffset);
+        long parentReds = KeyBytes.getLong(parent, parentOffset + Long.BYTES);
+        // The parent key may be a mirror image of the layout the jump was made from
+        for (int s = 0; s < board.symmetryCount(); s++){
+            long fromGreens = s == 0 ? parentGreens : move(parentGreens, board.symmetry(s));
+            long fromReds = s == 0 ? parentReds : move(parentReds, board.symmetry(s));
+            int jump = lastJump(fromGreens, fromReds, greens, reds);
+            if (jump >= 0){
+                long touched = 1L << board.jumpOver(jump) | 1L << board.jumpTo(jump) | (fromGreens | fromReds) & ~(greens | reds);
+                return forEachJump(greens, reds, touched, board.jumpRank(jump), true, scratch, visitor);
             }
         }
-        if (counter == 0){
-            result = true;
+        return forEachJump(greens, reds, 0, -1, true, scratch, visitor);
+    }
+
+    /**
+     * Finds the jump that turns one layout of frogs into another
+     * @return index of the jump, -1 if no single jump does
+     */
+    private int lastJump(long fromGreens, long fromReds, long greens, long reds){
+        long gone = fromGreens & ~greens;
+        long landed = greens & ~fromGreens;
+        if (fromReds != reds){
+            long from = fromReds & ~reds;
+            long to = reds & ~fromReds;
+            if (landed != 0 || Long.bitCount(gone) != 1 || Long.bitCount(from) != 1 || Long.bitCount(to) != 1){
+                return -1;
+            }
+            return board.findJump(Long.numberOfTrailingZeros(from), Long.numberOfTrailingZeros(gone), Long.numberOfTrailingZeros(to));
         }
-        return result;
+        if (Long.bitCount(gone) != 2 || Long.bitCount(landed) != 1){
+            return -1;
+        }
+        int first = Long.numberOfTrailingZeros(gone);
+        int second = 63 - Long.numberOfLeadingZeros(gone);
+        int to = Long.numberOfTrailingZeros(landed);
+        int jump = board.findJump(first, second, to);
+        return jump >= 0 ? jump : board.findJump(second, first, to);
     }
 
-    @Override
     /**
-     * Creates all the neighbors needed to find the fastest solution to the puzzle
-     * @return collection of all the neighbors
+     * Writes the key of every jump that can be made and isn't left out
+     * @param greens lily pads with a green frog
+     * @param reds lily pads with a red frog
+     * @param touched lily pads of the jump that was just made, 0 if none is known
+     * @param rank rank of the jump that was just made, jumps that don't touch it and rank below it are left out
+     * @param prune T/F value for if jumps that land in a layout that can't be solved are left out
+     * @return number of neighbors
      */
-    public Collection<Configuration> getNeighbors() {
-        LinkedList<Configuration> lst = new LinkedList<>();
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                if (grid[i][j] == 'G' || grid[i][j] == 'R'){
-                    if (i % 2 == 0){
-                        for (int z = 0; z < 8; z++){
-                            if (z==0 && j-4>=0 && grid[i][j-2] == 'G' && grid[i][j-4] == '.'){
-                                lst.add(new HoppersConfig(this,i,j, "left"));
-                            }
-                            else if (z==1 && j-2>=0 && i-2>=0 && grid[i-1][j-1] == 'G' && grid[i-2][j-2] == '.'){
-                                lst.add(new HoppersConfig(this,i,j, "up-left"));
-                            }
-                            else if (z==2 && i-4>=0 && grid[i-2][j] == 'G' && grid[i-4][j] == '.'){
-                                lst.add(new HoppersConfig(this,i,j,"up"));
-                            }
-                            else if (z==3 && j+2<=cols-1 && i-2>=0 && grid[i-1][j+1] == 'G' && grid[i-2][j+2] == '.'){
-                                lst.add(new HoppersConfig(this,i,j,"up-right"));
-                            }
-                            else if (z==4 && j+4<=cols-1 && grid[i][j+2] == 'G' && grid[i][j+4] == '.'){
-                                lst.add(new HoppersConfig(this,i,j,"right"));
-                            }
-                            else if (z==5 && j+2<=cols-1 && i+2<=rows-1 && grid[i+1][j+1] == 'G' && grid[i+2][j+2] == '.'){
-                                lst.add(new HoppersConfig(this,i,j,"down-right"));
-                            }
-                            else if (z==6 && i+4<=rows-1 && grid[i+2][j] == 'G' && grid[i+4][j] == '.'){
-                                lst.add(new HoppersConfig(this,i,j,"down"));
-                            }
-                            else if (z==7 && j-2>=0 && i+2<=rows-1 && grid[i+1][j-1] == 'G' && grid[i+2][j-2] == '.'){
-                                lst.add(new HoppersConfig(this,i,j,"down-left"));
-                            }
-                        }
+    private int forEachJump(long greens, long reds, long touched, int rank, boolean prune, byte[] scratch, NeighborVisitor visitor){
+        long empty = board.pads() & ~(greens | reds);
+        long frogs = greens | reds;
+        int count = 0;
+        while (frogs != 0){
+            int from = Long.numberOfTrailingZeros(frogs);
+            long fromBit = frogs & -frogs;
+            frogs &= frogs - 1;
+            for (int k = board.firstJump(from); k < board.firstJump(from + 1); k++){
+                int over = board.jumpOver(k);
+                int to = board.jumpTo(k);
+                if ((greens >>> over & 1L) != 0 && (empty >>> to & 1L) != 0){
+                    long toBit = 1L << to;
+                    if (board.jumpRank(k) < rank && ((fromBit | 1L << over | toBit) & touched) == 0){
+                        continue;
+                    }
+                    long newGreens = greens & ~(1L << over);
+                    long newReds = reds;
+                    if ((reds & fromBit) != 0){
+                        newReds = (reds & ~fromBit) | toBit;
                     }
                     else{
-                        for (int z = 0; z < 4; z++){
-                            if (z==0 && j-2>=0 && i-2>=0 && grid[i-1][j-1] == 'G' && grid[i-2][j-2] == '.'){
-                                lst.add(new HoppersConfig(this,i,j,"up-left"));
-                            }
-                            else if (z==1 && j+2<=cols-1 && i-2>=0 && grid[i-1][j+1] == 'G' && grid[i-2][j+2] == '.'){
-                                lst.add(new HoppersConfig(this,i,j,"up-right"));
-                            }
-                            else if (z==2 && j+2<=cols-1 && i+2<=rows-1 && grid[i+1][j+1] == 'G' && grid[i+2][j+2] == '.'){
-                                lst.add(new HoppersConfig(this,i,j,"down-right"));
-                            }
-                            else if (z==3 && j-2>=0 && i+2<=rows-1 && grid[i+1][j-1] == 'G' && grid[i+2][j-2] == '.'){
-                                lst.add(new HoppersConfig(this,i,j,"down-left"));
-                            }
-                        }
+                        newGreens = (newGreens & ~fromBit) | toBit;
+                    }
+                    if (prune && board.isDead(newGreens, newReds)){
+                        continue;
+                    }
+                    KeyBytes.putLong(scratch, 0, newGreens);
+                    KeyBytes.putLong(scratch, Long.BYTES, newReds);
+                    count++;
+                    if (!visitor.visit(scratch, 0, newGreens == 0)){
+                        return count;
                     }
                 }
             }
         }
-        return lst;
+        return count;
     }
 
+    @Override
+    /**
+     * Gets the length of the key, the green bitboard and the red bitboard
+     * @return number of bytes in a key
+     */
+    public int getKeyLength() {
+        return 2 * Long.BYTES;
+    }
+
+    @Override
     /**
-     * Gets the grid of the current config
+     * Writes both bitboards into the key
+     */
+    public void writeKey(byte[] key, int offset) {
+        KeyBytes.putLong(key, offset, green);
+        KeyBytes.putLong(key, offset + Long.BYTES, red);
+    }
+
+    @Override
+    /**
+     * Gets the number of ways the board can be flipped or turned and look the same
+     * @return number of symmetries of the board
+     */
+    public int getSymmetryCount() {
+        return board.symmetryCount();
+    }
+
+    @Override
+    /**
+     * Moves the frogs of a key by each symmetry of the board and keeps the smallest layout,
+     * comparing the green bitboards first and then the red ones
+     */
+    public void canonicalize(byte[] key, int offset) {
+        long bestGreens = KeyBytes.getLong(key, offset);
+        long bestReds = KeyBytes.getLong(key, offset + Long.BYTES);
+        long greens = bestGreens;
+        long reds = bestReds;
+        for (int s = 1; s < board.symmetryCount(); s++){
+            int[] moved = board.symmetry(s);
+            long newGreens = move(greens, moved);
+            int order = Long.compareUnsigned(newGreens, bestGreens);
+            if (order < 0 || order == 0 && Long.compareUnsigned(move(reds, moved), bestReds) < 0){
+                bestGreens = newGreens;
+                bestReds = move(reds, moved);
+            }
+        }
+        KeyBytes.putLong(key, offset, bestGreens);
+        KeyBytes.putLong(key, offset + Long.BYTES, bestReds);
+    }
+
+    /**
+     * Moves every frog of a bitboard to the lily pad a symmetry sends it to
+     * @param frogs bitboard of frogs
+     * @param moved lily pad each lily pad is moved to
+     * @return bitboard after the move
+     */
+    private static long move(long frogs, int[] moved){
+        long result = 0;
+        while (frogs != 0){
+            result |= 1L << moved[Long.numberOfTrailingZeros(frogs)];
+            frogs &= frogs - 1;
+        }
+        return result;
+    }
+
+    @Override
+    /**
+     * Rebuilds a config on the same board from a key
+     * @return the config of the key
+     */
+    public Configuration fromKey(byte[] key, int offset) {
+        return new HoppersConfig(board, KeyBytes.getLong(key, offset), KeyBytes.getLong(key, offset + Long.BYTES));
+    }
+
+    /**
+     * Gets what is on a spot of the board
+     * @param r row
+     * @param c column
+     * @return '*' for water, '.' for an empty lily pad, 'G' or 'R' for a frog
+     */
+    public char getCell(int r, int c){
+        int p = board.index(r, c);
+        if (p < 0){
+            return '*';
+        }
+        else if ((green >>> p & 1L) != 0){
+            return 'G';
+        }
+        else if ((red >>> p & 1L) != 0){
+            return 'R';
+        }
+        return '.';
+    }
+
+    /**
+     * Gets a copy of the grid of the current config
      * @return grid
      */
     public char[][] getGrid(){
-        return this.grid;
+        char[][] grid = new char[getRows()][getCols()];
+        for (int i = 0; i < getRows(); i++) {
+            for (int j = 0; j < getCols(); j++) {
+                grid[i][j] = getCell(i, j);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Gets the number of green frogs left on the board
+     * @return number of green frogs
+     */
+    public int getGreenCount(){
+        return Long.bitCount(green);
     }
 
     /**
@@ -186,7 +316,7 @@ public class HoppersConfig implements Configuration{
      * @return number of columns
      */
     public int getCols(){
-        return cols;
+        return board.getCols();
     }
 
     /**
@@ -194,7 +324,16 @@ public class HoppersConfig implements Configuration{
      * @return number of rows
      */
     public int getRows(){
-        return rows;
+        return board.getRows();
+    }
+
+    /**
+     * Gets a 64 bit key of the frog layout, cheap to work out and spread across all the bits
+     * @return key of the configuration
+     */
+    public long getKey(){
+        long key = green * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(red * 0xC2B2AE3D27D4EB4FL, 31);
+        return key ^ (key >>> 29);
     }
 
     /**
@@ -206,11 +345,18 @@ public class HoppersConfig implements Configuration{
      * @param mr middle row
      * @param mc middle column
      * @param frogger frog that is jumping
+     * @return config after the move
      */
-    public void makeMove(int sr, int sc, int er, int ec, int mr, int mc, char frogger){
-        this.grid[sr][sc] = '.';
-        this.grid[er][ec] = frogger;
-        this.grid[mr][mc] = '.';
+    public HoppersConfig makeMove(int sr, int sc, int er, int ec, int mr, int mc, char frogger){
+        long greens = this.green & ~(1L << board.index(mr, mc)) & ~(1L << board.index(sr, sc));
+        long reds = this.red & ~(1L << board.index(sr, sc));
+        if (frogger == 'R'){
+            reds |= 1L << board.index(er, ec);
+        }
+        else{
+            greens |= 1L << board.index(er, ec);
+        }
+        return new HoppersConfig(board, greens, reds);
     }
 
     /**
@@ -219,10 +365,10 @@ public class HoppersConfig implements Configuration{
      */
     public String toString(){
         StringBuilder result = new StringBuilder();
-        for (int i = 0; i < rows; i++) {
+        for (int i = 0; i < getRows(); i++) {
             result.append("\n");
-            for (int j = 0; j < cols; j++) {
-                result.append(this.grid[i][j] + " ");
+            for (int j = 0; j < getCols(); j++) {
+                result.append(getCell(i, j)).append(' ');
             }
         }
         result.append("\n");
@@ -234,7 +380,7 @@ public class HoppersConfig implements Configuration{
      * @return hash code of configuration
      */
     public int hashCode(){
-        return this.toString().hashCode();
+        return Long.hashCode(getKey());
     }
 
     /**
@@ -246,7 +392,7 @@ public class HoppersConfig implements Configuration{
         boolean result = false;
         if (other instanceof HoppersConfig){
             HoppersConfig otherc = (HoppersConfig) other;
-            if (this.toString().equals(otherc.toString())){
+            if (this.green == otherc.green && this.red == otherc.red && this.board == otherc.board){
                 result = true;
             }
         }
@@ -0,0 +1,20 @@
+package puzzles.hoppers.model;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Heuristic;
+
+/**
+ * class that estimates the moves left for a hoppers config
+ * Every jump takes exactly one green frog off the board, so the green frogs left are a lower bound
+ */
+public class HoppersHeuristic implements Heuristic {
+
+    @Override
+    /**
+     * Counts the green frogs left on the board
+     * @return lower bound on the moves left
+     */
+    public int estimate(Configuration config) {
+        return ((HoppersConfig) config).getGreenCount();
+    }
+}
@@ -1,11 +1,17 @@
 package puzzles.hoppers.model;
 
 import puzzles.common.Observer;
-import puzzles.common.solver.Configuration;
+import puzzles.common.solver.CancellationToken;
+import puzzles.common.solver.SolutionCache;
+import puzzles.common.solver.SolveLimits;
 import puzzles.common.solver.Solver;
+import puzzles.common.solver.SolverResult;
+import puzzles.common.solver.SolverStats;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * model that is used for the ptui and gui
@@ -15,14 +21,25 @@ public class HoppersModel {
     /** the collection of observers of this model */
     private final List<Observer<HoppersModel, String>> observers = new LinkedList<>();
 
-    /** the current configuration */
-    public HoppersConfig currentConfig;
+    /** the current configuration, volatile since hints may be solved off the gui thread */
+    public volatile HoppersConfig currentConfig;
+    /** lets a hint check the board is unchanged and move it in one step */
+    private static final AtomicReferenceFieldUpdater<HoppersModel, HoppersConfig> CURRENT_CONFIG =
+            AtomicReferenceFieldUpdater.newUpdater(HoppersModel.class, HoppersConfig.class, "currentConfig");
     /** keeps track of the row used for the select method */
     private int startRow = -1;
     /** keeps track of the column for the select method */
     private int startCol = -1;
+    /** paths that were already solved, so hints along them don't solve again */
+    private final SolutionCache cache = new SolutionCache();
+    /** the solver working on a hint, null when no hint is being solved */
+    private volatile Solver hintSolver;
+    /** token that stops the hint that is being solved */
+    private volatile CancellationToken hintToken;
+    /** longest a hint is allowed to solve before giving up */
+    public final static Duration HINT_TIME_LIMIT = Duration.ofSeconds(30);
     /** the last file that was started used to refresh the puzzle */
-    public static String lastRefresh;
+    private String lastRefresh;
 
     /**
      * Hoppers model constructor
@@ -60,9 +77,9 @@ public class HoppersModel {
      */
     public void select(int r, int c){
         if (r >= 0 && r <= currentConfig.getRows() && c >= 0 && c <= currentConfig.getCols()) {
-            char[][] grid = currentConfig.getGrid();
             if (startRow == -1) {
-                if (grid[r][c] != 'G' && grid[r][c] != 'R'){
+                char frog = currentConfig.getCell(r, c);
+                if (frog != 'G' && frog != 'R'){
                     alertObservers("No frog at (" + r + ", " + c + ")");
                 }
                 else {
@@ -95,23 +112,76 @@ public class HoppersModel {
 
     /**
      * Gives a hint for the current puzzle
+     * Can be called off the gui thread, the hint is thrown away if the board changed while it was solving
      */
     public void hint(){
-        if (this.currentConfig.isSolution()){
+        HoppersConfig start = this.currentConfig;
+        if (start.isSolution()){
             alertObservers("Already Solved!!!");
         }
         else{
-            List<Configuration> solution = Solver.solve(currentConfig);
-            try{HoppersConfig hinter = (HoppersConfig) solution.get(1);
-                this.currentConfig = hinter;
+            SolutionCache.Entry known = cache.get(start);
+            if (known == null){
+                Solver solver = new Solver();
+                CancellationToken token = new CancellationToken();
+                hintToken = token;
+                hintSolver = solver;
+                SolverResult result;
+                try{
+                    result = solver.solve(start, SolveLimits.NONE.withTimeout(HINT_TIME_LIMIT).withToken(token));
+                }
+                finally{
+                    hintSolver = null;
+                    hintToken = null;
+                }
+                if (result.isCancelled()){
+                    alertObservers("Hint cancelled!!!");
+                    return;
+                }
+                else if (!result.isComplete()){
+                    alertObservers("Hint gave up after " + HINT_TIME_LIMIT.toSeconds() + " seconds!!!");
+                    return;
+                }
+                if (result.getPath() == null){
+                    cache.putUnsolvable(start);
+                }
+                else{
+                    cache.put(result.getPath());
+                }
+                known = cache.get(start);
+            }
+            // Only moves if the board wasn't changed on the gui thread meanwhile
+            if (!known.isSolvable()){
+                alertObservers(this.currentConfig == start ? "No solution!!!" : "Board changed, hint skipped!!!");
+            }
+            else if (CURRENT_CONFIG.compareAndSet(this, start, (HoppersConfig) known.getNext())){
                 alertObservers("Next step!");
             }
-            catch(NullPointerException e) {
-                alertObservers("No solution!!!");
+            else{
+                alertObservers("Board changed, hint skipped!!!");
             }
         }
     }
 
+    /**
+     * Stops the hint that is being solved, if there is one
+     */
+    public void cancelHint(){
+        CancellationToken token = hintToken;
+        if (token != null){
+            token.cancel();
+        }
+    }
+
+    /**
+     * Gets the counters of the hint that is being solved
+     * @return counters of the solve, null when no hint is being solved
+     */
+    public SolverStats getHintStats(){
+        Solver solver = hintSolver;
+        return solver == null ? null : solver.getStats();
+    }
+
     /**
      * Resets the puzzle
      * @throws IOException
@@ -131,8 +201,8 @@ public class HoppersModel {
      */
     private boolean isValid(int sr, int sc, int er, int ec){
         boolean result = false;
-        char[][] grid = currentConfig.getGrid();
-        if ((grid[sr][sc] == 'G' || grid[sr][sc] == 'R') && grid[er][ec] == '.' && grid[averageRow(sr,er)][averageCol(sc,ec)] == 'G'){
+        char frog = currentConfig.getCell(sr, sc);
+        if ((frog == 'G' || frog == 'R') && currentConfig.getCell(er, ec) == '.' && currentConfig.getCell(averageRow(sr,er), averageCol(sc,ec)) == 'G'){
             if (sr >= 0 && er <= currentConfig.getRows() && sc >= 0 && ec <= currentConfig.getCols()){
                 if (sr % 2 == 0){
                     if (er - sr == 2 && ec - sc == 2){
@@ -187,9 +257,8 @@ public class HoppersModel {
      * @param ec Ending column
      */
     private void makeMove(int sr, int sc, int er, int ec){
-        char[][] grid = currentConfig.getGrid();
         if (isValid(sr,sc,er,ec)){
-            this.currentConfig.makeMove(sr,sc,er,ec,averageRow(sr,er), averageCol(sc,ec), grid[sr][sc]);
+            this.currentConfig = this.currentConfig.makeMove(sr,sc,er,ec,averageRow(sr,er), averageCol(sc,ec), currentConfig.getCell(sr, sc));
             alertObservers("Jumped from (" + sr + ", " + sc + ") to (" + er + ", " + ec + ")");
         }
         else{
@@ -218,11 +287,11 @@ public class HoppersModel {
     }
 
     /**
-     * Sets the last refreshed model
-     * @param last String containing the path to the configuration
+     * Gets the file the puzzle was last loaded from, which a reset goes back to
+     * @return String containing the path to the configuration
      */
-    public static void setLastRefresh(String last){
-        lastRefresh = last;
+    public String getLastRefresh(){
+        return lastRefresh;
     }
 
     /**
@@ -241,11 +310,10 @@ public class HoppersModel {
             result.append("--");
         }
         result.append("\n");
-        char[][] grid = currentConfig.getGrid();
         for (int i = 0; i < currentConfig.getRows(); i++){
             result.append(i + "|");
             for (int j = 0; j < currentConfig.getCols(); j++){
-                result.append(" " + grid[i][j]);
+                result.append(" " + currentConfig.getCell(i, j));
             }
             result.append("\n");
         }
@@ -79,7 +79,6 @@ public class HoppersPTUI implements Observer<HoppersModel, String> {
             HoppersPTUI ptui = new HoppersPTUI();
             try{
                 ptui.init(args[0]);
-                HoppersModel.setLastRefresh(args[0]);
                 ptui.run();
             }
             catch(IOException e){}
@@ -1,10 +1,13 @@
 package puzzles.hoppers.solver;
 
+import puzzles.common.solver.Checkpoints;
 import puzzles.common.solver.Configuration;
 import puzzles.common.solver.Solver;
+import puzzles.common.solver.SolverResult;
 import puzzles.hoppers.model.HoppersConfig;
 
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.*;
 
 /**
@@ -17,22 +20,38 @@ public class Hoppers {
             System.out.println("Usage: java Hoppers filename");
         }
         else{
+            PrintWriter out = new PrintWriter(System.out);
             try {
-                HoppersConfig hc = new HoppersConfig(args[0]);
-                Solver solver = new Solver();
-                List<Configuration> solution = solver.solve(hc);
-                if (solution != null){
-                    System.out.println("Total configs: " + solver.getTotalConfigs());
-                    System.out.println("Unique configs: " + solver.getUniqueConfigs());
-                    for (int i = 0; i < solution.size(); i++){
-                        System.out.println("Step " + i + ": " + solution.get(i));
-                    }
-                }
-                else{
-                    System.out.println("No solution!");
-                }
+                solve(args[0], out);
             }
             catch (IOException e){}
+            out.flush();
         }
     }
+
+    /**
+     * Solves a hoppers file and writes the answer
+     * @param filename The file of the puzzle
+     * @param out Where the answer is written
+     * @return the result of the solve
+     * @throws IOException if the file can't be read
+     */
+    public static SolverResult solve(String filename, PrintWriter out) throws IOException {
+        HoppersConfig hc = new HoppersConfig(filename);
+        Solver solver = new Solver();
+        Checkpoints checkpoints = Checkpoints.forPuzzle(filename);
+        SolverResult result = checkpoints == null ? solver.solve(hc) : solver.solveCheckpointed(hc, checkpoints);
+        List<Configuration> solution = result.getPath();
+        if (solution != null){
+            out.println("Total configs: " + solver.getTotalConfigs());
+            out.println("Unique configs: " + solver.getUniqueConfigs());
+            for (int i = 0; i < solution.size(); i++){
+                out.println("Step " + i + ": " + solution.get(i));
+            }
+        }
+        else{
+            out.println("No solution!");
+        }
+        return result;
+    }
 }
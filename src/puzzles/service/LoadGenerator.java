@@ -0,0 +1,130 @@
+package puzzles.service;
+
+import puzzles.batch.PuzzleInstances;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends puzzles to a running solve service from several clients at once and reports
+ * the throughput and the latency percentiles. Each client sends a request, waits for
+ * its answer and sends the next, going around the list of instances.
+ */
+public class LoadGenerator {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].startsWith("-")) {
+            System.out.println("Usage: java LoadGenerator [url] [clients] [requests] [warmup] [instance...]");
+            return;
+        }
+        String url = args.length > 0 ? args[0] : "http://127.0.0.1:" + SolveService.DEFAULT_PORT;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int warmup = args.length > 3 ? Integer.parseInt(args[3]) : requests / 10;
+        List<String> instances = args.length > 4 ? Arrays.asList(args).subList(4, args.length)
+                : PuzzleInstances.withGoldens(Path.of("."));
+
+        // Lets the JIT of the service warm up before anything is measured
+        run(url, clients, warmup, instances, new long[warmup], new int[warmup]);
+
+        long[] latencies = new long[requests];
+        int[] statuses = new int[requests];
+        long begin = System.nanoTime();
+        run(url, clients, requests, instances, latencies, statuses);
+        double seconds = (System.nanoTime() - begin) / 1e9;
+
+        Map<Integer, Integer> counts = new TreeMap<>();
+        for (int status: statuses) {
+            counts.merge(status, 1, Integer::sum);
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%d requests from %d clients over %d instances in %.2f s, %.1f requests/s%n",
+                requests, clients, instances.size(), seconds, requests / seconds);
+        System.out.printf("latency ms: p50 %.2f  p90 %.2f  p99 %.2f  max %.2f%n", percentile(latencies, 0.50),
+                percentile(latencies, 0.90), percentile(latencies, 0.99), percentile(latencies, 1.0));
+        System.out.println("statuses: " + counts);
+        System.out.println("service: " + fetch(new URL(url + "/stats"), null));
+    }
+
+    /**
+     * Sends requests from every client until the given number have been answered
+     * @param latencies Filled with the nanoseconds each request took
+     * @param statuses Filled with the HTTP status of each answer, 0 if it never came
+     */
+    private static void run(String url, int clients, int requests, List<String> instances,
+                            long[] latencies, int[] statuses) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                done.add(pool.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                        String instance = instances.get(i % instances.size());
+                        int[] status = new int[1];
+                        long start = System.nanoTime();
+                        try {
+                            fetch(new URL(url + "/solve?instance=" + URLEncoder.encode(instance, StandardCharsets.UTF_8)), status);
+                        }
+                        catch (IOException e) {
+                            status[0] = 0;
+                        }
+                        latencies[i] = System.nanoTime() - start;
+                        statuses[i] = status[0];
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> client: done) {
+                client.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the whole answer to a request, so the connection can be used again
+     * @param status Set to the HTTP status, may be null
+     * @return the body of the answer
+     */
+    private static String fetch(URL url, int[] status) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int code = connection.getResponseCode();
+        if (status != null) {
+            status[0] = code;
+        }
+        InputStream body = code < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (body == null) {
+            return "";
+        }
+        try (body) {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Gets a percentile of sorted latencies
+     * @return the latency in milliseconds
+     */
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
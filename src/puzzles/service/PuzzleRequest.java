@@ -0,0 +1,182 @@
+package puzzles.service;
+
+import puzzles.batch.PuzzleInstances;
+import puzzles.common.solver.Configuration;
+import puzzles.crossing.CrossingConfig;
+import puzzles.hoppers.model.HoppersConfig;
+import puzzles.slide.model.SlideConfig;
+import puzzles.strings.StringsConfig;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A puzzle sent to the solve service, written like a query string:
+ * <pre>
+ * puzzle=hoppers&amp;file=data/hoppers/hoppers-4.txt
+ * puzzle=slide&amp;file=data/slide/slide-3.txt
+ * puzzle=crossing&amp;pups=2&amp;wolves=1&amp;capacity=2
+ * puzzle=strings&amp;start=AB&amp;end=XD
+ * instance=hoppers-4
+ * </pre>
+ * An instance is named like the golden files in output. Every way of writing the same
+ * puzzle gives equal requests, whatever their timeouts, which is how identical requests
+ * find each other.
+ */
+public final class PuzzleRequest {
+    /** Kind of puzzle, hoppers, slide, crossing or strings */
+    private final String puzzle;
+    /** The values of the puzzle in a fixed order, a file path or numbers or strings */
+    private final String[] values;
+    /** Milliseconds the request may wait for its answer, 0 for the service default */
+    private final long timeoutMillis;
+
+    private PuzzleRequest(String puzzle, String[] values, long timeoutMillis) {
+        this.puzzle = puzzle;
+        this.values = values;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Reads a request from a query string
+     * @param query The query string, without the question mark
+     * @return the request
+     * @throws IllegalArgumentException if the query isn't a puzzle
+     */
+    public static PuzzleRequest parse(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query != null) {
+            for (String pair: query.split("&")) {
+                if (!pair.isEmpty()) {
+                    int equals = pair.indexOf('=');
+                    String name = equals < 0 ? pair : pair.substring(0, equals);
+                    String value = equals < 0 ? "" : pair.substring(equals + 1);
+                    params.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                            URLDecoder.decode(value, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        long timeout = params.containsKey("timeout") ? Long.parseLong(params.get("timeout")) : 0;
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout can't be negative");
+        }
+
+        String instance = params.get("instance");
+        if (instance != null) {
+            return fromInstance(instance, timeout);
+        }
+        String puzzle = required(params, "puzzle");
+        switch (puzzle) {
+            case "hoppers":
+            case "slide":
+                return new PuzzleRequest(puzzle, new String[]{required(params, "file")}, timeout);
+            case "crossing":
+                String capacity = params.getOrDefault("capacity", String.valueOf(CrossingConfig.DEFAULT_CAPACITY));
+                return new PuzzleRequest(puzzle, new String[]{number(required(params, "pups")),
+                        number(required(params, "wolves")), number(capacity)}, timeout);
+            case "strings":
+                return new PuzzleRequest(puzzle, new String[]{required(params, "start"), required(params, "end")}, timeout);
+            default:
+                throw new IllegalArgumentException("Unknown puzzle " + puzzle);
+        }
+    }
+
+    /**
+     * Makes the request of an instance named like a golden file
+     */
+    private static PuzzleRequest fromInstance(String instance, long timeout) {
+        String puzzle = PuzzleInstances.puzzleOf(instance);
+        switch (puzzle) {
+            case "hoppers":
+            case "slide":
+                return new PuzzleRequest(puzzle, new String[]{"data/" + puzzle + "/" + instance + ".txt"}, timeout);
+            case "crossing":
+                String[] numbers = instance.split("-");
+                if (numbers.length < 3) {
+                    throw new IllegalArgumentException("Crossing instances are named crossing-pups-wolves");
+                }
+                String capacity = numbers.length > 3 ? numbers[3] : String.valueOf(CrossingConfig.DEFAULT_CAPACITY);
+                return new PuzzleRequest(puzzle, new String[]{number(numbers[1]), number(numbers[2]), number(capacity)}, timeout);
+            case "strings":
+                String[] words = instance.split("-", 3);
+                if (words.length < 3) {
+                    throw new IllegalArgumentException("Strings instances are named strings-start-end");
+                }
+                return new PuzzleRequest(puzzle, new String[]{words[1], words[2]}, timeout);
+            default:
+                throw new IllegalArgumentException("Unknown puzzle " + instance);
+        }
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        return value;
+    }
+
+    /**
+     * Checks a count and writes it the same way every time, so 02 and 2 get the same key
+     */
+    private static String number(String value) {
+        return String.valueOf(Integer.parseInt(value));
+    }
+
+    /**
+     * Makes the starting configuration of the puzzle
+     * @param root Folder that puzzle files are read from, files outside of it are refused
+     * @return the starting configuration
+     * @throws IOException if the puzzle file can't be read
+     */
+    public Configuration load(Path root) throws IOException {
+        switch (puzzle) {
+            case "hoppers":
+                return new HoppersConfig(file(root).toString());
+            case "slide":
+                return new SlideConfig(file(root).toString());
+            case "crossing":
+                return new CrossingConfig(Integer.parseInt(values[0]), Integer.parseInt(values[1]), Integer.parseInt(values[2]));
+            default:
+                return new StringsConfig(values[0], values[1]);
+        }
+    }
+
+    private Path file(Path root) throws IOException {
+        Path base = root.toAbsolutePath().normalize();
+        Path file = base.resolve(values[0]).normalize();
+        if (!file.startsWith(base)) {
+            throw new IOException("Puzzle files have to be under " + base);
+        }
+        return file;
+    }
+
+    public String getPuzzle() {
+        return puzzle;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof PuzzleRequest request && this.puzzle.equals(request.puzzle)
+                && Arrays.equals(this.values, request.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return puzzle.hashCode() * 31 + Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return puzzle + " " + String.join(" ", values);
+    }
+}
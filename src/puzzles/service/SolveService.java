@@ -0,0 +1,468 @@
+package puzzles.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import puzzles.common.solver.CancellationToken;
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.SolveLimits;
+import puzzles.common.solver.Solver;
+import puzzles.common.solver.SolverResult;
+import puzzles.common.solver.SolverStats;
+import puzzles.common.solver.StopReason;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Long running solve service, so puzzles don't each pay for starting a JVM and warming
+ * up the JIT. Puzzles come in over HTTP on the loopback address:
+ * <pre>
+ * GET  /solve?instance=hoppers-4&amp;timeout=5000   solves one puzzle, see PuzzleRequest
+ * POST /solve                                    solves one puzzle per line of the body
+ * GET  /stats                                    counters of the service
+ * </pre>
+ * Solves run on a fixed number of workers. Only so many solves may be running or
+ * waiting at once, past that a request is turned away with a 503 straight away instead
+ * of queueing forever. Every request has a deadline that counts from when it arrived,
+ * and a request for a puzzle that is already being solved waits for that solve instead
+ * of starting another one.
+ */
+public class SolveService {
+    public static final int DEFAULT_PORT = 8080;
+    /** Deadline of a request that doesn't give a timeout */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+    /** Longest deadline a request may ask for */
+    public static final Duration MAX_TIMEOUT = Duration.ofMinutes(10);
+
+    /**
+     * A solve that one or more requests are waiting for
+     */
+    private static final class Flight {
+        private final PuzzleRequest request;
+        private final CompletableFuture<SolverResult> result = new CompletableFuture<>();
+        /** Stops the solve once nobody waiting for it has time left */
+        private final CancellationToken token = new CancellationToken();
+        /** Latest deadline of the requests waiting, as a System.nanoTime() value */
+        private final AtomicLong deadline;
+        /** Whether the token was cancelled because the deadline passed */
+        private volatile boolean expired;
+        /** The path and counters as JSON, written once for every request waiting */
+        private String resultJson;
+
+        private Flight(PuzzleRequest request, long deadline) {
+            this.request = request;
+            this.deadline = new AtomicLong(deadline);
+        }
+
+        /**
+         * Lets the solve run until a later deadline
+         * @param later The deadline of a request that joined, as a System.nanoTime() value
+         */
+        private void extend(long later) {
+            deadline.accumulateAndGet(later, (a, b) -> b - a > 0 ? b : a);
+        }
+
+        private synchronized String resultJson(SolverResult result) {
+            if (resultJson == null) {
+                resultJson = Answer.resultJson(result);
+            }
+            return resultJson;
+        }
+    }
+
+    /** Folder that puzzle files are read from */
+    private final Path root;
+    private final int workerCount;
+    /** Most solves that may wait for a worker */
+    private final int queueCapacity;
+    private final ThreadPoolExecutor workers;
+    /** Cancels solves whose deadline passed */
+    private final ScheduledExecutorService watchdog;
+    /** One permit for every solve that may be running or waiting */
+    private final Semaphore admission;
+    /** Solves that haven't finished, by puzzle */
+    private final ConcurrentHashMap<PuzzleRequest, Flight> inFlight = new ConcurrentHashMap<>();
+    private HttpServer server;
+    /** Threads that read requests and write answers */
+    private final ExecutorService http;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+
+    /**
+     * Constructor for a solve service, which doesn't listen until it is started
+     * @param root Folder that puzzle files are read from
+     * @param workerCount Number of puzzles solved at the same time
+     * @param queueCapacity Most puzzles that may wait for a worker
+     */
+    public SolveService(Path root, int workerCount, int queueCapacity) {
+        if (workerCount < 1 || queueCapacity < 0) {
+            throw new IllegalArgumentException("A solve service needs a worker and a queue that isn't negative");
+        }
+        this.root = root;
+        this.workerCount = workerCount;
+        this.queueCapacity = queueCapacity;
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), daemons("solve-worker"));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(daemons("solve-watchdog"));
+        this.admission = new Semaphore(workerCount + queueCapacity);
+        this.http = Executors.newFixedThreadPool(4, daemons("solve-http"));
+    }
+
+    private static ThreadFactory daemons(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Solves a puzzle, or waits for the solve of an identical puzzle already running
+     * @param request The puzzle to solve
+     * @return the answer, once the puzzle is solved or the deadline of the request passes
+     */
+    public CompletableFuture<Answer> submit(PuzzleRequest request) {
+        long arrived = System.nanoTime();
+        long timeout = request.getTimeoutMillis() == 0 ? DEFAULT_TIMEOUT.toNanos()
+                : Math.min(TimeUnit.MILLISECONDS.toNanos(request.getTimeoutMillis()), MAX_TIMEOUT.toNanos());
+        long deadline = arrived + timeout;
+
+        boolean[] started = {false};
+        Flight flight = inFlight.compute(request, (key, existing) -> {
+            // A solve that was already cancelled can't be joined, it won't give a path
+            if (existing != null && !existing.token.isCancelled()) {
+                existing.extend(deadline);
+                return existing;
+            }
+            if (!admission.tryAcquire()) {
+                return existing;
+            }
+            started[0] = true;
+            return new Flight(key, deadline);
+        });
+        if (!started[0] && (flight == null || flight.token.isCancelled())) {
+            rejected.increment();
+            return CompletableFuture.completedFuture(new Answer(request, "REJECTED", null, null, null, false, arrived));
+        }
+        accepted.increment();
+        if (started[0]) {
+            workers.execute(() -> run(flight));
+            watch(flight);
+        }
+        else {
+            shared.increment();
+        }
+
+        boolean joined = !started[0];
+        return flight.result.copy().orTimeout(timeout, TimeUnit.NANOSECONDS).handle((result, error) -> {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof TimeoutException) {
+                timedOut.increment();
+                return new Answer(request, StopReason.DEADLINE.name(), null, null, null, joined, arrived);
+            }
+            if (cause != null) {
+                return new Answer(request, "ERROR", null, null, cause.toString(), joined, arrived);
+            }
+            boolean expired = result.getStopReason() == StopReason.CANCELLED && flight.expired;
+            String status = expired ? StopReason.DEADLINE.name() : result.getStopReason().name();
+            return new Answer(request, status, result, flight.resultJson(result), null, joined, arrived);
+        });
+    }
+
+    /**
+     * Solves the puzzle of a flight on a worker
+     */
+    private void run(Flight flight) {
+        try {
+            Configuration start = flight.request.load(root);
+            flight.result.complete(new Solver().solve(start, SolveLimits.NONE.withToken(flight.token)));
+        }
+        catch (Exception e) {
+            flight.result.completeExceptionally(e);
+        }
+        finally {
+            inFlight.remove(flight.request, flight);
+            admission.release();
+            completed.increment();
+        }
+    }
+
+    /**
+     * Cancels the solve of a flight once the latest deadline of its requests passes
+     */
+    private void watch(Flight flight) {
+        if (flight.result.isDone()) {
+            return;
+        }
+        long left = flight.deadline.get() - System.nanoTime();
+        if (left <= 0) {
+            flight.expired = true;
+            flight.token.cancel();
+        }
+        else {
+            watchdog.schedule(() -> watch(flight), left, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Starts listening for requests
+     * @param address The address to listen on
+     * @throws IOException if the address can't be used
+     */
+    public void start(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, 0);
+        server.createContext("/solve", this::handleSolve);
+        server.createContext("/stats", this::handleStats);
+        server.setExecutor(http);
+        server.start();
+    }
+
+    /**
+     * Stops listening and cancels every solve that is still running
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        for (Flight flight: inFlight.values()) {
+            flight.token.cancel();
+        }
+        workers.shutdownNow();
+        watchdog.shutdownNow();
+        http.shutdownNow();
+    }
+
+    /**
+     * Answers /solve. Nothing here waits for a solve, the answer is sent once it is
+     * finished, without holding up the worker.
+     */
+    private void handleSolve(HttpExchange exchange) throws IOException {
+        try {
+            if (exchange.getRequestMethod().equals("GET")) {
+                PuzzleRequest request = PuzzleRequest.parse(exchange.getRequestURI().getRawQuery());
+                submit(request).thenAcceptAsync(answer -> send(exchange, answer.getHttpStatus(), answer.toJson()), http);
+            }
+            else if (exchange.getRequestMethod().equals("POST")) {
+                List<PuzzleRequest> requests = new ArrayList<>();
+                BufferedReader body = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+                for (String line = body.readLine(); line != null; line = body.readLine()) {
+                    if (!line.isBlank()) {
+                        requests.add(PuzzleRequest.parse(line.strip()));
+                    }
+                }
+                List<CompletableFuture<Answer>> answers = new ArrayList<>();
+                for (PuzzleRequest request: requests) {
+                    answers.add(submit(request));
+                }
+                CompletableFuture.allOf(answers.toArray(new CompletableFuture<?>[0])).thenRunAsync(() -> {
+                    StringBuilder json = new StringBuilder("[");
+                    for (int i = 0; i < answers.size(); i++) {
+                        json.append(i == 0 ? "" : ",\n").append(answers.get(i).join().toJson());
+                    }
+                    send(exchange, 200, json.append("]").toString());
+                }, http);
+            }
+            else {
+                send(exchange, 405, "{\"error\":\"Use GET or POST\"}");
+            }
+        }
+        catch (IllegalArgumentException e) {
+            send(exchange, 400, "{\"error\":" + Answer.quote(e.getMessage()) + "}");
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) {
+        send(exchange, 200, String.format("{\"workers\":%d,\"queueCapacity\":%d,\"running\":%d,\"queued\":%d,"
+                        + "\"accepted\":%d,\"shared\":%d,\"rejected\":%d,\"timedOut\":%d,\"completed\":%d}",
+                workerCount, queueCapacity, workers.getActiveCount(), workers.getQueue().size(),
+                accepted.sum(), shared.sum(), rejected.sum(), timedOut.sum(), completed.sum()));
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        try (OutputStream out = exchange.getResponseBody()) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            if (status == 503) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+            }
+            exchange.sendResponseHeaders(status, bytes.length);
+            out.write(bytes);
+        }
+        catch (IOException e) {
+            // The client went away, there is nobody left to answer
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * What the service answers for one puzzle
+     */
+    public static final class Answer {
+        private final PuzzleRequest request;
+        /** SOLVED, NO_SOLUTION, DEADLINE, CANCELLED, REJECTED or ERROR */
+        private final String status;
+        /** The result of the solve, null if it was turned away, failed or timed out */
+        private final SolverResult result;
+        /** The path and counters of the result as JSON, null without a result */
+        private final String resultJson;
+        /** What went wrong, null unless the status is ERROR */
+        private final String error;
+        /** Whether the request waited for a solve started by another request */
+        private final boolean shared;
+        /** Nanoseconds from when the request arrived to when it was answered */
+        private final long latencyNanos;
+
+        private Answer(PuzzleRequest request, String status, SolverResult result, String resultJson, String error,
+                       boolean shared, long arrived) {
+            this.request = request;
+            this.status = status;
+            this.result = result;
+            this.resultJson = resultJson;
+            this.error = error;
+            this.shared = shared;
+            this.latencyNanos = System.nanoTime() - arrived;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public SolverResult getResult() {
+            return result;
+        }
+
+        public boolean isShared() {
+            return shared;
+        }
+
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        /**
+         * Gets the HTTP status of the answer
+         * @return 200 for a finished solve, 504 for a deadline, 503 if the service is full or stopping
+         */
+        public int getHttpStatus() {
+            switch (status) {
+                case "SOLVED":
+                case "NO_SOLUTION":
+                    return 200;
+                case "REJECTED":
+                case "CANCELLED":
+                    return 503;
+                case "ERROR":
+                    return 400;
+                default:
+                    return 504;
+            }
+        }
+
+        /**
+         * Writes the answer as JSON, with the path as the strings the configurations print as
+         * @return the JSON object
+         */
+        public String toJson() {
+            StringBuilder json = new StringBuilder();
+            json.append("{\"puzzle\":").append(quote(request.toString()));
+            json.append(",\"status\":").append(quote(status));
+            json.append(",\"shared\":").append(shared);
+            json.append(",\"millis\":").append(String.format("%.3f", latencyNanos / 1e6));
+            if (error != null) {
+                json.append(",\"error\":").append(quote(error));
+            }
+            if (resultJson != null) {
+                json.append(resultJson);
+            }
+            return json.append("}").toString();
+        }
+
+        /**
+         * Writes the path and the counters of a solve as JSON fields
+         */
+        static String resultJson(SolverResult result) {
+            StringBuilder json = new StringBuilder();
+            List<Configuration> path = result.getPath();
+            if (path != null) {
+                json.append(",\"moves\":").append(path.size() - 1).append(",\"path\":[");
+                for (int i = 0; i < path.size(); i++) {
+                    json.append(i == 0 ? "" : ",").append(quote(path.get(i).toString()));
+                }
+                json.append("]");
+            }
+            SolverStats stats = result.getStats();
+            json.append(String.format(",\"stats\":{\"generated\":%d,\"unique\":%d,\"expanded\":%d,\"maxFrontier\":%d,"
+                            + "\"peakVisited\":%d,\"depth\":%d,\"solveMillis\":%.3f,\"configsPerSecond\":%.0f}",
+                    stats.getGenerated(), stats.getUnique(), stats.getExpanded(), stats.getMaxFrontier(),
+                    stats.getPeakVisited(), stats.getDepth(), stats.getElapsedNanos() / 1e6, stats.getConfigsPerSecond()));
+            return json.toString();
+        }
+
+        /**
+         * Writes a string as a JSON string
+         */
+        static String quote(String text) {
+            StringBuilder json = new StringBuilder("\"");
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    json.append('\\').append(c);
+                }
+                else if (c == '\n') {
+                    json.append("\\n");
+                }
+                else if (c < ' ') {
+                    json.append(String.format("\\u%04x", (int) c));
+                }
+                else {
+                    json.append(c);
+                }
+            }
+            return json.append('"').toString();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int workerCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = args.length > 2 ? Integer.parseInt(args[2]) : 4 * workerCount;
+        Path root = Path.of(args.length > 3 ? args[3] : ".");
+
+        SolveService service = new SolveService(root, workerCount, queueCapacity);
+        service.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        Runtime.getRuntime().addShutdownHook(new Thread(service::stop));
+        System.out.println("Solving on http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + port
+                + " with " + workerCount + " workers and room for " + queueCapacity + " more");
+    }
+}
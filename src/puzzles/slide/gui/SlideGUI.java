@@ -1,5 +1,8 @@
 package puzzles.slide.gui;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.geometry.Pos;
@@ -12,11 +15,16 @@ import javafx.scene.layout.FlowPane;
 import javafx.scene.layout.GridPane;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import puzzles.common.Observer;
+import puzzles.common.solver.SolverStats;
 import puzzles.slide.model.SlideModel;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SlideGUI extends Application implements Observer<SlideModel, String> {
     private SlideModel model;
@@ -31,6 +39,17 @@ public class SlideGUI extends Application implements Observer<SlideModel, String
     private final static String EVEN_COLOR = "#ADD8E6";
     private final static String ODD_COLOR = "#FED8B1";
     private final static String EMPTY_COLOR = "#FFFFFF";
+    /** How often the solver progress is shown while a hint is solving */
+    private final static Duration PROGRESS_INTERVAL = Duration.millis(200);
+
+    /** Background thread that solves hints so the window doesn't freeze */
+    private final ExecutorService solverThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "slide-hint");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** Whether a hint is being solved, extra hint clicks are ignored until it finishes */
+    private final AtomicBoolean solving = new AtomicBoolean(false);
 
     private Stage stage;
     private GridPane grid;
@@ -38,6 +57,9 @@ public class SlideGUI extends Application implements Observer<SlideModel, String
     private Button loadButton;
     private Button resetButton;
     private Button hintButton;
+    private Button cancelButton;
+    private Label progressDisplay;
+    private Timeline progressTimer;
 
     @Override
     public void init() throws IOException {
@@ -102,15 +124,18 @@ public class SlideGUI extends Application implements Observer<SlideModel, String
 
         // Solves the next step or tells you there is no solution
         hintButton = new Button("Hint");
-        hintButton.setOnAction(event -> {
-            try {
-                this.model.solveNextStep();
-            } catch (Exception e) {
-                statusDisplay.setText("Failed puzzle hint");
-            }
-        });
+        hintButton.setOnAction(event -> requestHint());
+
+        // Stops a hint that is taking too long
+        cancelButton = new Button("Cancel");
+        cancelButton.setOnAction(event -> this.model.cancelHint());
+
+        // Shows how far the solver got while a hint is solving
+        progressDisplay = new Label();
+        progressTimer = new Timeline(new KeyFrame(PROGRESS_INTERVAL, event -> showProgress()));
+        progressTimer.setCycleCount(Animation.INDEFINITE);
 
-        bottom.getChildren().addAll(loadButton, resetButton, hintButton);
+        bottom.getChildren().addAll(loadButton, resetButton, hintButton, cancelButton, progressDisplay);
 
         // The board is in a grid pane
         grid = new GridPane();
@@ -129,6 +154,41 @@ public class SlideGUI extends Application implements Observer<SlideModel, String
         stage.show();
     }
 
+    /**
+     * Solves a hint on the background thread. Clicks while a hint is
+     * already solving are dropped.
+     */
+    private void requestHint() {
+        if (!solving.compareAndSet(false, true)) {
+            return;
+        }
+        progressTimer.play();
+        solverThread.execute(() -> {
+            try {
+                this.model.solveNextStep();
+            } catch (Exception e) {
+                Platform.runLater(() -> statusDisplay.setText("Failed puzzle hint"));
+            } finally {
+                solving.set(false);
+                Platform.runLater(() -> {
+                    progressTimer.stop();
+                    progressDisplay.setText("");
+                });
+            }
+        });
+    }
+
+    /**
+     * Shows the counters of the hint that is solving
+     */
+    private void showProgress() {
+        SolverStats stats = this.model.getHintStats();
+        if (stats != null) {
+            progressDisplay.setText(String.format(" Solving... %,d configs (%,.0f/s)",
+                    stats.getUnique(), stats.getConfigsPerSecond()));
+        }
+    }
+
     /**
      * Refreshes the grid by building it over again
      *
@@ -144,7 +204,7 @@ public class SlideGUI extends Application implements Observer<SlideModel, String
         for (int r=0; r<model.getCurrentConfig().getROWS(); r++) {
             for (int c=0; c<model.getCurrentConfig().getCOLS(); c++) {
 
-                int n = model.getCurrentConfig().getGrid()[r][c];
+                int n = model.getCurrentConfig().getNumber(r, c);
 
                 Cell button = new Cell(n,r,c);
 
@@ -205,18 +265,26 @@ public class SlideGUI extends Application implements Observer<SlideModel, String
         //System.out.println(data);
         //System.out.println(model);
 
-        // Sets status
-        statusDisplay.setText(data);
-
-        // Refreshes the grid
+        // Hints call this from the solver thread, so the work is handed to the fx thread
         if ( Platform.isFxApplicationThread() ) {
+            // Sets status
+            statusDisplay.setText(data);
+
+            // Refreshes the grid
             this.refresh(model);
         }
         else {
-            Platform.runLater( () -> this.refresh(model) );
+            Platform.runLater( () -> this.update(model, data) );
         }
     }
 
+    @Override
+    public void stop() {
+        // Stops any hint that is still solving
+        this.model.cancelHint();
+        solverThread.shutdownNow();
+    }
+
     public static void main(String[] args) {
         Application.launch(args);
     }
@@ -0,0 +1,64 @@
+package puzzles.slide.model;
+
+/**
+ * Shape of a slide puzzle, shared by every configuration of that puzzle.
+ * Never changes, so any number of puzzles can be solved at the same time.
+ */
+public final class SlideBoard {
+    /** Bits used by one cell of the packed board */
+    static final int NIBBLE = 4;
+    /** Largest number that fits in one cell of the packed board */
+    static final int NIBBLE_MAX = 0xF;
+
+    private final int rows;
+    private final int cols;
+    /** Whether the board fits in a single packed long */
+    private final boolean packed;
+
+    /**
+     * Constructor for the shape of a puzzle.
+     *
+     * @param rows
+     * @param cols
+     * @param largest the largest number on the board
+     */
+    SlideBoard(int rows, int cols, int largest) {
+        this.rows = rows;
+        this.cols = cols;
+
+        // Small boards with small numbers fit in a single long
+        this.packed = rows*cols * NIBBLE <= Long.SIZE && largest <= NIBBLE_MAX;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Gets the number of cells, the empty one included.
+     *
+     * @return rows times columns
+     */
+    public int size() {
+        return rows*cols;
+    }
+
+    public boolean isPacked() {
+        return packed;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SlideBoard board && this.rows == board.rows && this.cols == board.cols
+                && this.packed == board.packed;
+    }
+
+    @Override
+    public int hashCode() {
+        return (rows * 31 + cols) * 2 + (packed ? 1 : 0);
+    }
+}
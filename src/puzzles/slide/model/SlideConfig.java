@@ -1,6 +1,9 @@
 package puzzles.slide.model;
 
 import puzzles.common.solver.Configuration;
+import puzzles.common.solver.EncodableConfiguration;
+import puzzles.common.solver.KeyBytes;
+import puzzles.common.solver.ReversibleConfiguration;
 
 import java.io.File;
 import java.io.IOException;
@@ -8,14 +11,24 @@ import java.util.*;
 
 // TODO: implement your SlideConfig for the common solver
 
-public class SlideConfig implements Configuration {
+public class SlideConfig implements ReversibleConfiguration, EncodableConfiguration {
 
-    private static int ROWS;
-    private static int COLS;
     private static final int EMPTY = 0;
-    private int[][] grid;
-    private int emptyRow;
-    private int emptyCol;
+    private static final int NIBBLE = SlideBoard.NIBBLE;
+    private static final int NIBBLE_MAX = SlideBoard.NIBBLE_MAX;
+    /** Largest number that fits in one cell of the byte board */
+    private static final int BYTE_MAX = 0xFF;
+
+    /** Shape of the puzzle, shared by all of its configurations */
+    private final SlideBoard board;
+    /** Board packed four bits per cell in row major order, only used when the shape is packed */
+    private final long packed;
+    /** Board with one byte per cell in row major order, only used when the shape isn't packed */
+    private final byte[] cells;
+    /** Index of the empty cell in row major order */
+    private final int empty;
+    /** Hash of the board, worked out once since configurations never change */
+    private final int hash;
 
 
     /**
@@ -28,33 +41,38 @@ public class SlideConfig implements Configuration {
         Scanner file = new Scanner(new File(filename));
 
         // First value is the row length, second is the column length
-        ROWS = file.nextInt();
-        COLS = file.nextInt();
-
-        // Creates a 2d integer array with ROWS and COLS
-        this.grid = new int[ROWS][COLS];
-
-        // Populates the integer array
-        for (int r=0; r<ROWS; r++) {
-            for (int c=0; c<COLS; c++) {
-
-                // Gets the values from the file
-                String next = file.next();
-
-                // Tries to convert to integer
-                // If it can't, we found the blank and put a 0 in its spot
-                try {
-                    this.grid[r][c] = Integer.parseInt(next);
-                }
-                catch (Exception e) {
-                    //System.out.println("Found empty at: int[" + r + "][" + c + "]" );
-                    this.emptyRow = r;
-                    this.emptyCol = c;
-
-                    this.grid[r][c] = EMPTY;
-                }
+        int rows = file.nextInt();
+        int cols = file.nextInt();
+
+        // Reads the numbers, the blank is stored as a 0
+        int[] numbers = new int[rows*cols];
+        int blank = 0;
+        int largest = 0;
+        for (int i=0; i<numbers.length; i++) {
+
+            // Gets the values from the file
+            String next = file.next();
+
+            // Tries to convert to integer
+            // If it can't, we found the blank and put a 0 in its spot
+            try {
+                numbers[i] = Integer.parseInt(next);
+            }
+            catch (Exception e) {
+                blank = i;
+                numbers[i] = EMPTY;
             }
+            largest = Math.max(largest, numbers[i]);
         }
+        if (largest > BYTE_MAX) {
+            throw new IOException("Numbers above " + BYTE_MAX + " are not supported");
+        }
+
+        this.board = new SlideBoard(rows, cols, largest);
+        this.packed = board.isPacked() ? pack(numbers) : 0;
+        this.cells = board.isPacked() ? null : toBytes(numbers);
+        this.empty = blank;
+        this.hash = hash(this.packed, this.cells);
     }
 
     /**
@@ -65,213 +83,435 @@ public class SlideConfig implements Configuration {
      * @param newEmptyCol
      */
     public SlideConfig(int[][] parent, int newEmptyRow, int newEmptyCol) {
-
-        // Copying 2d arrays is such a pain
-        this.grid = new int[ROWS][COLS];
-        for (int r=0; r<ROWS; r++) {
-            this.grid[r] = parent[r].clone();
+        int rows = parent.length;
+        int cols = parent[0].length;
+        int[] numbers = new int[rows*cols];
+        int largest = 0;
+        for (int r=0; r<rows; r++) {
+            System.arraycopy(parent[r], 0, numbers, r*cols, cols);
+            for (int c=0; c<cols; c++) {
+                largest = Math.max(largest, parent[r][c]);
+            }
         }
 
-        this.emptyRow = newEmptyRow;
-        this.emptyCol = newEmptyCol;
+        this.board = new SlideBoard(rows, cols, largest);
+        this.packed = board.isPacked() ? pack(numbers) : 0;
+        this.cells = board.isPacked() ? null : toBytes(numbers);
+        this.empty = newEmptyRow*cols + newEmptyCol;
+        this.hash = hash(this.packed, this.cells);
     }
 
-    @Override
-    public boolean isSolution() {
-
-        // Assumes true
-        boolean result = true;
-
-        // Converts the grid to an arrayList of integers
-        // Excludes the "." aka "0"
-        ArrayList<Integer> list = new ArrayList<>();
+    /**
+     * Constructor for a board that is already encoded.
+     *
+     * @param board
+     * @param packed
+     * @param cells
+     * @param empty
+     */
+    private SlideConfig(SlideBoard board, long packed, byte[] cells, int empty) {
+        this.board = board;
+        this.packed = packed;
+        this.cells = cells;
+        this.empty = empty;
+        this.hash = hash(packed, cells);
+    }
 
-        for (int row=0; row<ROWS; row++) {
-            for (int col=0; col<COLS; col++) {
-                if (this.grid[row][col] != EMPTY) {
-                    list.add(this.grid[row][col]);
-                }
-            }
+    private static long pack(int[] numbers) {
+        long result = 0;
+        for (int i=0; i<numbers.length; i++) {
+            result |= (long) numbers[i] << (i*NIBBLE);
         }
+        return result;
+    }
 
-        // Checks if the integer in front is larger than the current integer
-        // If so, then this is not the solution
-        for (int i=0; i<(list.size()-1); i++) {
-            if (list.get(i) > list.get(i+1)) {
-                result = false;
-            }
+    private static byte[] toBytes(int[] numbers) {
+        byte[] result = new byte[numbers.length];
+        for (int i=0; i<numbers.length; i++) {
+            result[i] = (byte) numbers[i];
         }
+        return result;
+    }
 
-        // The empty spot is not at the end
-        if (this.emptyRow != ROWS-1 || this.emptyCol != COLS-1) {
-            result = false;
+    private static int hash(long packed, byte[] cells) {
+        return cells == null ? Long.hashCode(packed * 0x9E3779B97F4A7C15L) : Arrays.hashCode(cells);
+    }
+
+    /**
+     * Gets the number in a cell, 0 being the empty spot.
+     *
+     * @param index cell index in row major order
+     * @return the number in the cell
+     */
+    private int get(int index) {
+        if (this.cells == null) {
+            return (int) (this.packed >>> (index*NIBBLE)) & NIBBLE_MAX;
         }
+        return this.cells[index] & BYTE_MAX;
+    }
 
-        return result;
+    /**
+     * Slides the number in a cell into the empty spot.
+     *
+     * @param index cell index in row major order of the number being moved
+     * @return the new configuration
+     */
+    private SlideConfig slide(int index) {
+        int number = get(index);
+        if (this.cells == null) {
+            // The empty cell is already 0, so only the moved number needs to be cleared and set
+            long moved = this.packed & ~((long) NIBBLE_MAX << (index*NIBBLE));
+            moved |= (long) number << (this.empty*NIBBLE);
+            return new SlideConfig(this.board, moved, null, index);
+        }
+        byte[] moved = this.cells.clone();
+        moved[this.empty] = (byte) number;
+        moved[index] = EMPTY;
+        return new SlideConfig(this.board, 0, moved, index);
     }
 
     @Override
-    public Collection<Configuration> getNeighbors() {
-
-        // Storing successors
-        List<Configuration> successors = new LinkedList<>();
+    public boolean isSolution() {
 
-        if (this.emptyRow-1 >= 0) {
-            // Ok to switch with above value
+        // The empty spot is not at the end
+        if (this.empty != board.size()-1) {
+            return false;
+        }
 
-            // Gets the original values of the spots
-            int A = this.grid[this.emptyRow-1][this.emptyCol];
+        // Checks if the integer in front is larger than the current integer
+        // If so, then this is not the solution
+        for (int i=1; i<this.empty; i++) {
+            if (get(i-1) > get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-            // Swaps the values of the spots
-            this.grid[this.emptyRow-1][this.emptyCol] = EMPTY;
-            this.grid[this.emptyRow][this.emptyCol] = A;
+    /**
+     * Checks to see if every number on the board is different. Moves never change the
+     * numbers, so this holds for every board of the puzzle or for none of them.
+     *
+     * @return T/F value for if no number is on the board twice
+     */
+    public boolean hasDistinctNumbers() {
+        int size = board.size();
+        int[] numbers = new int[size];
+        for (int i=0; i<size; i++) {
+            numbers[i] = get(i);
+        }
+        Arrays.sort(numbers);
+        for (int i=1; i<size; i++) {
+            if (numbers[i-1] == numbers[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-            // Adds the new configuration to the successors
-            successors.add(new SlideConfig(this.grid, this.emptyRow-1, this.emptyCol));
+    /**
+     * Checks to see if the board can reach the solution. A board with only one row or
+     * column can't change the order of its numbers. On any other board every move keeps
+     * the parity of the inversions, plus the row of the empty spot when the width is even,
+     * and every board with the parity of the solution can reach it. Boards with the same
+     * number twice are taken as solvable, since either copy can end up first.
+     *
+     * @return T/F value for if the board can be solved
+     */
+    public boolean isSolvable() {
+        int rows = board.getRows();
+        int cols = board.getCols();
+        int size = board.size();
+        int[] numbers = new int[size-1];
+        int n = 0;
+        for (int i=0; i<size; i++) {
+            if (i != this.empty) {
+                numbers[n++] = get(i);
+            }
+        }
 
-            // Swaps the values of the spots back
-            this.grid[this.emptyRow-1][this.emptyCol] = A;
-            this.grid[this.emptyRow][this.emptyCol] = EMPTY;
+        // Without a second row or column the numbers only slide back and forth
+        if (rows == 1 || cols == 1) {
+            for (int i=1; i<numbers.length; i++) {
+                if (numbers[i-1] > numbers[i]) {
+                    return false;
+                }
+            }
+            return true;
         }
-        if (this.emptyRow+1 < ROWS) {
-            // Ok to switch with below value
 
-            // Gets the original values of the spots
-            int A = this.grid[this.emptyRow+1][this.emptyCol];
+        int inversions = 0;
+        for (int i=0; i<numbers.length; i++) {
+            for (int j=i+1; j<numbers.length; j++) {
+                if (numbers[i] == numbers[j]) {
+                    return true;
+                }
+                if (numbers[i] > numbers[j]) {
+                    inversions++;
+                }
+            }
+        }
 
-            // Swaps the values of the spots
-            this.grid[this.emptyRow+1][this.emptyCol] = EMPTY;
-            this.grid[this.emptyRow][this.emptyCol] = A;
+        // A move up or down jumps a number over cols-1 others and changes the row of the empty spot
+        if (cols % 2 == 1) {
+            return inversions % 2 == 0;
+        }
+        return (inversions + rows-1 - getEmptyRow()) % 2 == 0;
+    }
 
-            // Adds the new configuration to the successors
-            successors.add(new SlideConfig(this.grid, this.emptyRow+1, this.emptyCol));
+    @Override
+    public int forEachNeighborKey(byte[] key, int offset, byte[] scratch, NeighborVisitor visitor) {
+        int rows = this.board.getRows();
+        int cols = this.board.getCols();
+        int size = this.board.size();
+        boolean isPacked = this.board.isPacked();
+        long board = isPacked ? KeyBytes.getLong(key, offset) : 0;
+        if (!isPacked) {
+            System.arraycopy(key, offset, scratch, 0, size);
+        }
+        int blank = isPacked ? emptyOf(board) : emptyOf(scratch, size);
+        int emptyRow = blank / cols;
+        int emptyCol = blank % cols;
+
+        // Same order as the moves were always made: above, below, left, right
+        int count = 0;
+        for (int move=0; move<4; move++) {
+            int index;
+            if (move == 0 && emptyRow-1 >= 0) {
+                index = blank-cols;
+            }
+            else if (move == 1 && emptyRow+1 < rows) {
+                index = blank+cols;
+            }
+            else if (move == 2 && emptyCol-1 >= 0) {
+                index = blank-1;
+            }
+            else if (move == 3 && emptyCol+1 < cols) {
+                index = blank+1;
+            }
+            else {
+                continue;
+            }
 
-            // Swaps the values of the spots back
-            this.grid[this.emptyRow+1][this.emptyCol] = A;
-            this.grid[this.emptyRow][this.emptyCol] = EMPTY;
+            boolean more;
+            if (isPacked) {
+                // The empty cell is already 0, so only the moved number needs to be cleared and set
+                long number = (board >>> (index*NIBBLE)) & NIBBLE_MAX;
+                long moved = (board & ~((long) NIBBLE_MAX << (index*NIBBLE))) | number << (blank*NIBBLE);
+                KeyBytes.putLong(scratch, 0, moved);
+                more = visitor.visit(scratch, 0, index == size-1 && isSorted(moved, size));
+            }
+            else {
+                // Slides the number over, shows the key and slides it back
+                scratch[blank] = scratch[index];
+                scratch[index] = EMPTY;
+                more = visitor.visit(scratch, 0, index == size-1 && isSorted(scratch, size));
+                scratch[index] = scratch[blank];
+                scratch[blank] = EMPTY;
+            }
+            count++;
+            if (!more) {
+                break;
+            }
         }
-        if (this.emptyCol-1 >= 0) {
-            // Ok to switch with left value
+        return count;
+    }
 
-            // Gets the original values of the spots
-            int A = this.grid[this.emptyRow][this.emptyCol-1];
+    /**
+     * Finds the empty cell of a packed board, the lowest cell holding a 0.
+     * Cells past the end of the board are 0 too, but they are all higher.
+     *
+     * @param board
+     * @return index of the empty cell
+     */
+    private static int emptyOf(long board) {
+        long zeros = (board - 0x1111111111111111L) & ~board & 0x8888888888888888L;
+        return Long.numberOfTrailingZeros(zeros) / NIBBLE;
+    }
 
-            // Swaps the values of the spots
-            this.grid[this.emptyRow][this.emptyCol-1] = EMPTY;
-            this.grid[this.emptyRow][this.emptyCol] = A;
+    private static int emptyOf(byte[] cells, int size) {
+        for (int i=0; i<size; i++) {
+            if (cells[i] == EMPTY) {
+                return i;
+            }
+        }
+        return 0;
+    }
 
-            // Adds the new configuration to the successors
-            successors.add(new SlideConfig(this.grid, this.emptyRow, this.emptyCol-1));
+    /**
+     * Checks if the numbers in front of the empty spot at the end never go down.
+     *
+     * @param board
+     * @param size number of cells
+     * @return if the board is solved
+     */
+    private static boolean isSorted(long board, int size) {
+        for (int i=1; i<size-1; i++) {
+            if (((board >>> ((i-1)*NIBBLE)) & NIBBLE_MAX) > ((board >>> (i*NIBBLE)) & NIBBLE_MAX)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-            // Swaps the values of the spots back
-            this.grid[this.emptyRow][this.emptyCol-1] = A;
-            this.grid[this.emptyRow][this.emptyCol] = EMPTY;
+    private static boolean isSorted(byte[] cells, int size) {
+        for (int i=1; i<size-1; i++) {
+            if ((cells[i-1] & BYTE_MAX) > (cells[i] & BYTE_MAX)) {
+                return false;
+            }
         }
-        if (this.emptyCol+1 < COLS) {
-            // Ok to switch with right value
+        return true;
+    }
 
-            // Gets the original values of the spots
-            int A = this.grid[this.emptyRow][this.emptyCol+1];
-            int Empty = this.grid[this.emptyRow][this.emptyCol];
+    @Override
+    public Collection<Configuration> getGoals() {
+
+        // The solved board has the same numbers in order with the empty spot at the end
+        int size = board.size();
+        int[] numbers = new int[size];
+        int n = 0;
+        for (int i=0; i<size; i++) {
+            if (get(i) != EMPTY) {
+                numbers[n++] = get(i);
+            }
+        }
+        Arrays.sort(numbers, 0, size-1);
+        numbers[size-1] = EMPTY;
 
-            // Swaps the values of the spots
-            this.grid[this.emptyRow][this.emptyCol+1] = Empty;
-            this.grid[this.emptyRow][this.emptyCol] = A;
+        List<Configuration> goals = new LinkedList<>();
+        goals.add(new SlideConfig(board, board.isPacked() ? pack(numbers) : 0, board.isPacked() ? null : toBytes(numbers), size-1));
+        return goals;
+    }
 
-            // Adds the new configuration to the successors
-            successors.add(new SlideConfig(this.grid, this.emptyRow, this.emptyCol+1));
+    @Override
+    public int getKeyLength() {
+        // The packed long, or one byte per cell
+        return board.isPacked() ? Long.BYTES : board.size();
+    }
 
-            // Swaps the values of the spots back
-            this.grid[this.emptyRow][this.emptyCol+1] = A;
-            this.grid[this.emptyRow][this.emptyCol] = Empty;
+    @Override
+    public void writeKey(byte[] key, int offset) {
+        if (this.cells == null) {
+            KeyBytes.putLong(key, offset, this.packed);
+        } else {
+            System.arraycopy(this.cells, 0, key, offset, this.cells.length);
         }
+    }
 
-        return successors;
+    @Override
+    public Configuration fromKey(byte[] key, int offset) {
+        if (board.isPacked()) {
+            long numbers = KeyBytes.getLong(key, offset);
+            return new SlideConfig(board, numbers, null, emptyOf(numbers));
+        }
+        byte[] numbers = Arrays.copyOfRange(key, offset, offset + board.size());
+        return new SlideConfig(board, 0, numbers, emptyOf(numbers, numbers.length));
     }
 
     @Override
     public boolean equals(Object other) {
         boolean result = false;
         if (other instanceof SlideConfig temp) {
-            result = (this.emptyRow == temp.emptyRow) && (this.emptyCol == temp.emptyCol);
+            result = this.hash == temp.hash && this.empty == temp.empty && this.packed == temp.packed
+                    && Arrays.equals(this.cells, temp.cells) && this.board.equals(temp.board);
         }
         return result;
     }
 
     @Override
     public int hashCode() {
-        // The hash is just all the numbers concatenated from the grid including the "." which is a "0"
-
-        String hash = "";
-        for (int row=0; row<ROWS; row++) {
-            for (int col=0; col<COLS; col++) {
-                hash += this.grid[row][col];
-            }
-        }
-        return hash.hashCode();
+        return this.hash;
     }
 
     @Override
     public String toString() {
-        String print = "";
+        StringBuilder print = new StringBuilder();
 
-        for (int row=0; row<ROWS; row++) {
-            for (int col=0; col<COLS; col++) {
-                if (this.grid[row][col] == EMPTY) {
-                    print += " .";
+        for (int row=0; row<board.getRows(); row++) {
+            for (int col=0; col<board.getCols(); col++) {
+                int number = getNumber(row, col);
+                if (number == EMPTY) {
+                    print.append(" .");
                 } else {
-                    if (this.grid[row][col] < 10) {
-                        print += " " + this.grid[row][col];
-                    } else {
-                        print += this.grid[row][col];
+                    if (number < 10) {
+                        print.append(' ');
                     }
+                    print.append(number);
                 }
-                print += " ";
+                print.append(' ');
             }
-            print += "\n";
+            print.append('\n');
         }
 
-        return print;
+        return print.toString();
+    }
+
+    public int getROWS() {
+        return board.getRows();
     }
 
-    public static int getROWS() {
-        return ROWS;
+    public int getCOLS() {
+        return board.getCols();
     }
 
-    public static int getCOLS() {
-        return COLS;
+    public SlideBoard getBoard() {
+        return board;
     }
 
+    /**
+     * Gets the number at a spot on the board, 0 being the empty spot.
+     *
+     * @param row
+     * @param col
+     * @return the number at (row, col)
+     */
+    public int getNumber(int row, int col) {
+        return get(row*board.getCols() + col);
+    }
+
+    /**
+     * Builds a copy of the board as a grid of numbers, 0 being the empty spot.
+     *
+     * @return the grid
+     */
     public int[][] getGrid() {
-        return this.grid;
+        int[][] grid = new int[board.getRows()][board.getCols()];
+        for (int r=0; r<board.getRows(); r++) {
+            for (int c=0; c<board.getCols(); c++) {
+                grid[r][c] = getNumber(r, c);
+            }
+        }
+        return grid;
     }
 
     public int getEmptyRow() {
-        return emptyRow;
+        return this.empty / board.getCols();
     }
 
     public int getEmptyCol() {
-        return emptyCol;
+        return this.empty % board.getCols();
     }
 
-    public void makeMove(int aSelectionRow, int aSelectionCol, int bSelectionRow, int bSelectionCol) {
-
-        // Gets the values
-        int A = this.grid[aSelectionRow][aSelectionCol];
-        int B = this.grid[bSelectionRow][bSelectionCol];
-
-        // Switches the values
-        this.grid[aSelectionRow][aSelectionCol] = B;
-        this.grid[bSelectionRow][bSelectionCol] = A;
+    /**
+     * Swaps the numbers at two spots, one of which should be the empty spot.
+     *
+     * @param aSelectionRow
+     * @param aSelectionCol
+     * @param bSelectionRow
+     * @param bSelectionCol
+     * @return the configuration after the move
+     */
+    public SlideConfig makeMove(int aSelectionRow, int aSelectionCol, int bSelectionRow, int bSelectionCol) {
+        int a = aSelectionRow*board.getCols() + aSelectionCol;
+        int b = bSelectionRow*board.getCols() + bSelectionCol;
 
-        // Setting the new empty spot
-        if (this.grid[aSelectionRow][aSelectionCol] == EMPTY) {
-            this.emptyRow = aSelectionRow;
-            this.emptyCol = aSelectionCol;
+        // Slides whichever spot isn't empty into the empty one
+        if (a == this.empty) {
+            return slide(b);
         }
-        else if (this.grid[bSelectionRow][bSelectionCol] == EMPTY) {
-            this.emptyRow = bSelectionRow;
-            this.emptyCol = bSelectionCol;
+        else if (b == this.empty) {
+            return slide(a);
         }
+        return this;
     }
 }
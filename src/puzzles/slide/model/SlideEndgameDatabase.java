@@ -0,0 +1,292 @@
+package puzzles.slide.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Distance to the solution of every board of a small slide shape, found by one breadth
+ * first search back from the solved board. With it a hint, whether a board can be
+ * solved and how many moves it takes are all a few table lookups.
+ *
+ * Boards are indexed by the rank of the permutation they make, with each number known
+ * by the cell it ends up in and the empty cell last. The table is a byte per board. It
+ * is read from next to the pattern databases if SlidePatterns has built it there, and
+ * otherwise searched for in memory the first time the shape is asked for.
+ */
+public final class SlideEndgameDatabase {
+    /** Most cells a shape may have, 9! boards is a table of 363 kB */
+    public static final int MAX_CELLS = 9;
+    /** Distance of a board that can't reach the solution */
+    public static final int UNSOLVABLE = -1;
+    /** Table entry of a board that can't reach the solution */
+    private static final byte UNREACHED = (byte) 0xFF;
+    private static final int MAGIC = 0x53454E44;
+
+    /** Databases by shape, only shapes of up to MAX_CELLS cells are ever added */
+    private static final ConcurrentHashMap<String, SlideEndgameDatabase> LOADED = new ConcurrentHashMap<>();
+
+    private final int rows;
+    private final int cols;
+    /** Moves to the solution of each board by the rank of its permutation */
+    private final byte[] distances;
+
+    private SlideEndgameDatabase(int rows, int cols, byte[] distances) {
+        this.rows = rows;
+        this.cols = cols;
+        this.distances = distances;
+    }
+
+    /**
+     * Gets the database of a board shape. The first time a shape is asked for the table
+     * is read from its file, or searched for if there is none.
+     * @param rows number of rows of the board
+     * @param cols number of columns of the board
+     * @return the database, null if the shape has more than MAX_CELLS cells
+     */
+    public static SlideEndgameDatabase forShape(int rows, int cols) {
+        if (rows * cols > MAX_CELLS) {
+            return null;
+        }
+        return LOADED.computeIfAbsent(rows + "x" + cols, shape -> readOrBuild(rows, cols));
+    }
+
+    /**
+     * Gets the database for a puzzle. The table knows each number by the cell it ends up
+     * in, so a puzzle with a number on the board twice can't use it.
+     * @param config Any board of the puzzle
+     * @return the database, null if the shape is too big or a number repeats
+     */
+    public static SlideEndgameDatabase forPuzzle(SlideConfig config) {
+        if (config.getROWS() * config.getCOLS() > MAX_CELLS || !config.hasDistinctNumbers()) {
+            return null;
+        }
+        return forShape(config.getROWS(), config.getCOLS());
+    }
+
+    /**
+     * Gets the file the database of a board shape is kept in, under the folder named by
+     * the puzzles.pdb property, pdb by default
+     * @param rows number of rows of the board
+     * @param cols number of columns of the board
+     * @return path of the file
+     */
+    public static Path fileFor(int rows, int cols) {
+        return Path.of(System.getProperty("puzzles.pdb", "pdb")).resolve("slide-" + rows + "x" + cols + ".endgame");
+    }
+
+    private static SlideEndgameDatabase readOrBuild(int rows, int cols) {
+        Path file = fileFor(rows, cols);
+        int count = factorial(rows * cols);
+        try {
+            if (Files.exists(file)) {
+                ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+                if (data.remaining() == 3 * Integer.BYTES + count && data.getInt() == MAGIC
+                        && data.getInt() == rows && data.getInt() == cols) {
+                    byte[] distances = new byte[count];
+                    data.get(distances);
+                    return new SlideEndgameDatabase(rows, cols, distances);
+                }
+            }
+        }
+        catch (IOException e) {
+            // Searched for again below
+        }
+        return new SlideEndgameDatabase(rows, cols, search(rows, cols));
+    }
+
+    /**
+     * Searches for the table of a board shape and writes it to a file, so later runs
+     * read it instead of searching again
+     * @param rows number of rows of the board
+     * @param cols number of columns of the board
+     * @param file where the table is written
+     * @throws IOException if the file can't be written
+     */
+    public static void build(int rows, int cols, Path file) throws IOException {
+        if (rows * cols < 2 || rows * cols > MAX_CELLS) {
+            throw new IllegalArgumentException("Endgame databases need a board of 2 to " + MAX_CELLS + " cells");
+        }
+        byte[] distances = search(rows, cols);
+        ByteBuffer data = ByteBuffer.allocate(3 * Integer.BYTES + distances.length);
+        data.putInt(MAGIC).putInt(rows).putInt(cols).put(distances);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        Files.write(partial, data.array());
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Breadth first search back from the solved board over every board of the shape
+     * @return the distance of each board, UNREACHED for boards of the other parity
+     */
+    private static byte[] search(int rows, int cols) {
+        int size = rows * cols;
+        byte[] distances = new byte[factorial(size)];
+        Arrays.fill(distances, UNREACHED);
+        int[] queue = new int[distances.length];
+        int[] cells = new int[size];
+        for (int i = 0; i < size; i++) {
+            cells[i] = i;
+        }
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = rank(cells);
+        distances[queue[0]] = 0;
+        while (head < tail) {
+            int index = queue[head++];
+            unrank(index, cells);
+            int empty = 0;
+            while (cells[empty] != size - 1) {
+                empty++;
+            }
+            for (int move = 0; move < 4; move++) {
+                int cell = neighbor(empty, move, rows, cols);
+                if (cell >= 0) {
+                    cells[empty] = cells[cell];
+                    cells[cell] = size - 1;
+                    int next = rank(cells);
+                    if (distances[next] == UNREACHED) {
+                        distances[next] = (byte) (distances[index] + 1);
+                        queue[tail++] = next;
+                    }
+                    cells[cell] = cells[empty];
+                    cells[empty] = size - 1;
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Gets the cell next to a cell in one of the four directions
+     * @return the cell, -1 if it is off the board
+     */
+    private static int neighbor(int cell, int move, int rows, int cols) {
+        int row = cell / cols;
+        int col = cell % cols;
+        if (move == 0) {
+            return row > 0 ? cell - cols : -1;
+        } else if (move == 1) {
+            return row < rows - 1 ? cell + cols : -1;
+        } else if (move == 2) {
+            return col > 0 ? cell - 1 : -1;
+        }
+        return col < cols - 1 ? cell + 1 : -1;
+    }
+
+    /**
+     * Gets the number of moves a board is from the solution
+     * @param config A board of this shape
+     * @return the number of moves, UNSOLVABLE if it can't be solved
+     */
+    public int distance(SlideConfig config) {
+        int value = distances[rank(ranksOf(config))] & 0xFF;
+        return value == (UNREACHED & 0xFF) ? UNSOLVABLE : value;
+    }
+
+    /**
+     * Picks the move that brings a board closest to the solution
+     * @param config A board of this shape that isn't solved
+     * @return the board after the move, null if the board can't be solved
+     */
+    public SlideConfig nextStep(SlideConfig config) {
+        int distance = distance(config);
+        if (distance == UNSOLVABLE || distance == 0) {
+            return null;
+        }
+        int empty = config.getEmptyRow() * cols + config.getEmptyCol();
+        for (int move = 0; move < 4; move++) {
+            int cell = neighbor(empty, move, rows, cols);
+            if (cell >= 0) {
+                SlideConfig next = config.makeMove(cell / cols, cell % cols, config.getEmptyRow(), config.getEmptyCol());
+                if (distance(next) == distance - 1) {
+                    return next;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the cell each cell's number ends up in, the empty cell ending up last
+     */
+    private int[] ranksOf(SlideConfig config) {
+        if (config.getROWS() != rows || config.getCOLS() != cols) {
+            throw new IllegalArgumentException("The endgame database is for another board shape");
+        }
+        int size = rows * cols;
+        int[] numbers = new int[size];
+        for (int cell = 0; cell < size; cell++) {
+            numbers[cell] = config.getNumber(cell / cols, cell % cols);
+        }
+        int[] sorted = numbers.clone();
+        Arrays.sort(sorted);
+        for (int i = 1; i < size; i++) {
+            if (sorted[i - 1] == sorted[i]) {
+                throw new IllegalArgumentException("The endgame database needs every number to be different");
+            }
+        }
+        int[] cells = new int[size];
+        for (int cell = 0; cell < size; cell++) {
+            // The empty cell sorts first as 0 but ends up last
+            cells[cell] = numbers[cell] == 0 ? size - 1 : Arrays.binarySearch(sorted, numbers[cell]) - 1;
+        }
+        return cells;
+    }
+
+    /**
+     * Gets the rank of a permutation in lexicographic order
+     */
+    private static int rank(int[] cells) {
+        int index = 0;
+        int used = 0;
+        for (int i = 0; i < cells.length; i++) {
+            index = index * (cells.length - i) + cells[i] - Integer.bitCount(used & ((1 << cells[i]) - 1));
+            used |= 1 << cells[i];
+        }
+        return index;
+    }
+
+    /**
+     * Turns a rank back into its permutation
+     */
+    private static void unrank(int index, int[] cells) {
+        int size = cells.length;
+        int used = 0;
+        int weight = factorial(size - 1);
+        for (int i = 0; i < size; i++) {
+            int digit = index / weight;
+            index %= weight;
+            if (i < size - 1) {
+                weight /= size - 1 - i;
+            }
+            int value = 0;
+            while (true) {
+                if ((used >>> value & 1) == 0) {
+                    if (digit == 0) {
+                        break;
+                    }
+                    digit--;
+                }
+                value++;
+            }
+            cells[i] = value;
+            used |= 1 << value;
+        }
+    }
+
+    private static int factorial(int n) {
+        int result = 1;
+        for (int i = 2; i <= n; i++) {
+            result *= i;
+        }
+        return result;
+    }
+}
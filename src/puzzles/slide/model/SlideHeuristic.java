@@ -0,0 +1,112 @@
+package puzzles.slide.model;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Heuristic;
+
+import java.util.Arrays;
+
+/**
+ * Manhattan distance plus linear conflict estimate for the slide puzzle.
+ * Each number needs at least its row and column distance in moves, and two numbers
+ * stuck in the wrong order in their goal row or column need two more moves to get around each other.
+ */
+public class SlideHeuristic implements Heuristic {
+    /** Goal row of each number on the board */
+    private final int[] goalRow;
+    /** Goal column of each number on the board */
+    private final int[] goalCol;
+
+    /**
+     * Builds the goal positions from any configuration of the puzzle
+     * @param config Configuration holding the numbers of the puzzle
+     */
+    public SlideHeuristic(SlideConfig config) {
+        int rows = config.getROWS();
+        int cols = config.getCOLS();
+
+        // The solved board has the numbers in order, so the goal spot is the rank of the number
+        int[] numbers = new int[rows*cols-1];
+        int i = 0;
+        for (int row=0; row<rows; row++) {
+            for (int col=0; col<cols; col++) {
+                if (config.getNumber(row, col) != 0) {
+                    numbers[i++] = config.getNumber(row, col);
+                }
+            }
+        }
+        Arrays.sort(numbers);
+
+        int largest = numbers.length == 0 ? 0 : numbers[numbers.length-1];
+        this.goalRow = new int[largest+1];
+        this.goalCol = new int[largest+1];
+        for (i=0; i<numbers.length; i++) {
+            this.goalRow[numbers[i]] = i/cols;
+            this.goalCol[numbers[i]] = i%cols;
+        }
+    }
+
+    @Override
+    public int estimate(Configuration config) {
+        SlideConfig slide = (SlideConfig) config;
+        int rows = slide.getROWS();
+        int cols = slide.getCOLS();
+        int distance = 0;
+
+        // Manhattan distance
+        for (int row=0; row<rows; row++) {
+            for (int col=0; col<cols; col++) {
+                int n = slide.getNumber(row, col);
+                if (n != 0) {
+                    distance += Math.abs(row - this.goalRow[n]) + Math.abs(col - this.goalCol[n]);
+                }
+            }
+        }
+
+        // Linear conflicts in each row, then in each column
+        int[] line = new int[Math.max(rows, cols)];
+        for (int row=0; row<rows; row++) {
+            int size = 0;
+            for (int col=0; col<cols; col++) {
+                int n = slide.getNumber(row, col);
+                if (n != 0 && this.goalRow[n] == row) {
+                    line[size++] = this.goalCol[n];
+                }
+            }
+            distance += 2 * outOfOrder(line, size);
+        }
+        for (int col=0; col<cols; col++) {
+            int size = 0;
+            for (int row=0; row<rows; row++) {
+                int n = slide.getNumber(row, col);
+                if (n != 0 && this.goalCol[n] == col) {
+                    line[size++] = this.goalRow[n];
+                }
+            }
+            distance += 2 * outOfOrder(line, size);
+        }
+
+        return distance;
+    }
+
+    /**
+     * Counts how many numbers in a line have to leave it so the rest are in order,
+     * which is the length of the line minus its longest increasing run
+     * @param goals The goal positions of the numbers along the line
+     * @param size The number of entries used in goals
+     * @return the number of numbers that have to step out of the line
+     */
+    private static int outOfOrder(int[] goals, int size) {
+        int[] longest = new int[size];
+        int best = 0;
+        for (int i=0; i<size; i++) {
+            longest[i] = 1;
+            for (int j=0; j<i; j++) {
+                if (goals[j] < goals[i] && longest[j]+1 > longest[i]) {
+                    longest[i] = longest[j]+1;
+                }
+            }
+            best = Math.max(best, longest[i]);
+        }
+        return size - best;
+    }
+}
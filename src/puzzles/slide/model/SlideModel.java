@@ -1,21 +1,43 @@
 package puzzles.slide.model;
 
 import puzzles.common.Observer;
-import puzzles.common.solver.Configuration;
+import puzzles.common.solver.CancellationToken;
+import puzzles.common.solver.SolutionCache;
+import puzzles.common.solver.SolveLimits;
 import puzzles.common.solver.Solver;
+import puzzles.common.solver.SolverResult;
+import puzzles.common.solver.SolverStats;
 import puzzles.slide.ptui.SlidePTUI;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 public class SlideModel {
     /** the collection of observers of this model */
     private final List<Observer<SlideModel, String>> observers = new LinkedList<>();
 
-    /** the current configuration */
-    private SlideConfig currentConfig;
+    /** the current configuration, volatile since hints may be solved off the gui thread */
+    private volatile SlideConfig currentConfig;
+
+    /** lets a hint check the board is unchanged and move it in one step */
+    private static final AtomicReferenceFieldUpdater<SlideModel, SlideConfig> CURRENT_CONFIG =
+            AtomicReferenceFieldUpdater.newUpdater(SlideModel.class, SlideConfig.class, "currentConfig");
+
+    /** paths that were already solved, so hints along them don't solve again */
+    private final SolutionCache cache = new SolutionCache();
+
+    /** the solver working on a hint, null when no hint is being solved */
+    private volatile Solver hintSolver;
+
+    /** token that stops the hint that is being solved */
+    private volatile CancellationToken hintToken;
+
+    /** longest a hint is allowed to solve before giving up */
+    public static final Duration HINT_TIME_LIMIT = Duration.ofSeconds(30);
 
     private String file;
 
@@ -64,39 +86,114 @@ public class SlideModel {
         alertObservers("Puzzle Reset!");
     }
 
+    /**
+     * Moves one step along a shortest solution. Can be called off the gui thread,
+     * the step is thrown away if the board changed while it was solving.
+     */
     public void solveNextStep() {
 
-        if (this.currentConfig.isSolution()) {
+        SlideConfig start = this.currentConfig;
+        if (start.isSolution()) {
             // First sees if it's the solution already
             alertObservers("Game is solved!");
         }
         else {
-            // Since it is not the solution, the algorithm will try to solve
+            // Small boards without repeated numbers look the next step up in the endgame database, no solving needed
+            SlideEndgameDatabase endgame = SlideEndgameDatabase.forPuzzle(start);
+            if (endgame != null) {
+                moveTo(start, endgame.nextStep(start));
+                return;
+            }
 
-            // Returns steps to solve the currentConfig
-            List<Configuration> answer = Solver.solve(this.currentConfig);
+            // Since it is not the solution, the algorithm will try to solve
+            // Boards already on a solved path are looked up instead
+            SolutionCache.Entry known = this.cache.get(start);
+            if (known == null) {
+
+                // Returns steps to solve the currentConfig
+                Solver solver = new Solver();
+                CancellationToken token = new CancellationToken();
+                this.hintToken = token;
+                this.hintSolver = solver;
+                SolverResult result;
+                try {
+                    result = solver.solve(start, SolveLimits.NONE.withTimeout(HINT_TIME_LIMIT).withToken(token));
+                }
+                finally {
+                    this.hintSolver = null;
+                    this.hintToken = null;
+                }
 
-            // Checks if there is no solution
-            // Else, sets the currentConfig as the new config
-            if (answer == null) {
-                alertObservers("No solution");
-            }
-            else
-            {
-                // Sets the currentConfig as the next configuration
-                this.currentConfig = (SlideConfig) answer.get(1);
-
-                // If the move solves the grid, then show it
-                if (this.currentConfig.isSolution()) {
-                    alertObservers("Game is solved!");
+                // A solve that was stopped early says nothing about the board, so nothing is cached
+                if (result.isCancelled()) {
+                    alertObservers("Hint cancelled");
+                    return;
+                }
+                else if (!result.isComplete()) {
+                    alertObservers("Hint gave up after " + HINT_TIME_LIMIT.toSeconds() + " seconds");
+                    return;
+                }
+                if (result.getPath() == null) {
+                    this.cache.putUnsolvable(start);
                 }
                 else {
-                    alertObservers("Next step!");
+                    this.cache.put(result.getPath());
                 }
+                known = this.cache.get(start);
+            }
+
+            moveTo(start, known.isSolvable() ? (SlideConfig) known.getNext() : null);
+        }
+    }
+
+    /**
+     * Moves to the next step of a hint
+     *
+     * @param start the board the hint was worked out for
+     * @param next the next step, null if there is no solution
+     */
+    private void moveTo(SlideConfig start, SlideConfig next) {
+
+        // Checks if there is no solution
+        // Else, sets the currentConfig as the new config unless a move was made on the gui thread meanwhile
+        if (next == null) {
+            alertObservers(this.currentConfig == start ? "No solution" : "Board changed, hint skipped");
+        }
+        else if (!CURRENT_CONFIG.compareAndSet(this, start, next)) {
+            alertObservers("Board changed, hint skipped");
+        }
+        else
+        {
+            // If the move solves the grid, then show it
+            if (next.isSolution()) {
+                alertObservers("Game is solved!");
+            }
+            else {
+                alertObservers("Next step!");
             }
         }
     }
 
+    /**
+     * Stops the hint that is being solved, if there is one
+     */
+    public void cancelHint() {
+        CancellationToken token = this.hintToken;
+        if (token != null) {
+            token.cancel();
+        }
+    }
+
+    /**
+     * Gets the counters of the hint that is being solved
+     *
+     * @return counters of the solve, null when no hint is being solved
+     */
+    public SolverStats getHintStats() {
+        Solver solver = this.hintSolver;
+        return solver == null ? null : solver.getStats();
+    }
+
     public void makeSelection(int row, int col) {
 
         // If the grid is solved, then you can't make any more moves
@@ -124,7 +221,7 @@ public class SlideModel {
 
                     if (isValidMove(aSelectionRow, aSelectionCol, bSelectionRow, bSelectionCol)) {
                         // Successful move
-                        this.currentConfig.makeMove(aSelectionRow, aSelectionCol, bSelectionRow, bSelectionCol);
+                        this.currentConfig = this.currentConfig.makeMove(aSelectionRow, aSelectionCol, bSelectionRow, bSelectionCol);
 
                         // If the move solves the grid, then show it
                         if (this.currentConfig.isSolution()) {
@@ -147,7 +244,7 @@ public class SlideModel {
     public boolean isValidCoordinates(int coordRow, int coordCol) {
 
         // coordinate in bounds
-        return coordRow < SlideConfig.getROWS() && coordRow >= 0 && coordCol < SlideConfig.getCOLS() && coordCol >= 0;
+        return coordRow < this.currentConfig.getROWS() && coordRow >= 0 && coordCol < this.currentConfig.getCOLS() && coordCol >= 0;
     }
 
     public boolean isValidMove(int aSelectionRow, int aSelectionCol, int bSelectionRow, int bSelectionCol) {
@@ -204,7 +301,7 @@ public class SlideModel {
         String print = "  ";
 
         // Adds top row
-        for (int i = 0; i< SlideConfig.getCOLS(); i++) {
+        for (int i = 0; i< this.currentConfig.getCOLS(); i++) {
             if (i < 10) {
                 print += "  " + i;
             } else {
@@ -214,21 +311,22 @@ public class SlideModel {
         print += "\n  ";
 
         // Adds the dashes
-        for (int i = 0; i< SlideConfig.getCOLS(); i++) {
+        for (int i = 0; i< this.currentConfig.getCOLS(); i++) {
             print += "---";
         }
         print += "\n";
 
-        for (int row = 0; row< SlideConfig.getROWS(); row++) {
+        for (int row = 0; row< this.currentConfig.getROWS(); row++) {
             print += row + "| ";
-            for (int col = 0; col< SlideConfig.getCOLS(); col++) {
-                if (this.currentConfig.getGrid()[row][col] == 0) {
+            for (int col = 0; col< this.currentConfig.getCOLS(); col++) {
+                int number = this.currentConfig.getNumber(row, col);
+                if (number == 0) {
                     print += " .";
                 } else {
-                    if (this.currentConfig.getGrid()[row][col] < 10) {
-                        print += " " + this.currentConfig.getGrid()[row][col];
+                    if (number < 10) {
+                        print += " " + number;
                     } else {
-                        print += this.currentConfig.getGrid()[row][col];
+                        print += number;
                     }
                 }
                 print += " ";
@@ -0,0 +1,455 @@
+package puzzles.slide.model;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.BufferedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Disjoint additive pattern databases for one shape of slide board. The numbers are
+ * split into groups, and for every way the numbers of a group can be placed the table
+ * holds the fewest moves of those numbers it takes to bring them home, with every other
+ * number free to move without being counted. Since no move is counted by two groups the
+ * groups can be added up and still never go over the real number of moves.
+ *
+ * Numbers are known by their rank, the rank being the cell the number ends up in, so one
+ * table serves every puzzle of the same shape. Each table entry is a nibble holding half
+ * of how far the group is over its Manhattan distance, which is always an even number.
+ *
+ * The tables are made ahead of time by build and memory mapped from a file when a board
+ * of that shape is first estimated.
+ */
+public final class SlidePatternDatabase {
+    /** Most placements a single group may have, which sets how big the groups are */
+    private static final long MAX_PLACEMENTS = 8_000_000;
+    /** Largest value of a nibble, extra moves past 2 * this are left out of the estimate */
+    private static final int NIBBLE_MAX = 0xF;
+    private static final int MAGIC = 0x53504442;
+    private static final int VERSION = 1;
+
+    /** Databases that were looked for, by shape, empty if there is no file */
+    private static final ConcurrentHashMap<String, Optional<SlidePatternDatabase>> LOADED = new ConcurrentHashMap<>();
+
+    private final int rows;
+    private final int cols;
+    /** Ranks of the numbers in each group */
+    private final int[][] groups;
+    /** Group of each rank */
+    private final int[] groupOf;
+    /** Position of each rank inside its group */
+    private final int[] slotOf;
+    /** Weight of each position of each group in the index of a placement */
+    private final int[][] weights;
+    /** Nibble table of each group */
+    private final ByteBuffer[] tables;
+
+    private SlidePatternDatabase(int rows, int cols, int[][] groups, ByteBuffer[] tables) {
+        this.rows = rows;
+        this.cols = cols;
+        this.groups = groups;
+        this.tables = tables;
+        int size = rows * cols;
+        this.groupOf = new int[size - 1];
+        this.slotOf = new int[size - 1];
+        this.weights = new int[groups.length][];
+        for (int g = 0; g < groups.length; g++) {
+            for (int j = 0; j < groups[g].length; j++) {
+                groupOf[groups[g][j]] = g;
+                slotOf[groups[g][j]] = j;
+            }
+            weights[g] = weights(size, groups[g].length);
+        }
+    }
+
+    /**
+     * Gets the database of a board shape, reading it the first time it is asked for
+     * @param rows number of rows of the board
+     * @param cols number of columns of the board
+     * @return the database, null if none was built for the shape or it can't be read
+     */
+    public static SlidePatternDatabase forShape(int rows, int cols) {
+        return LOADED.computeIfAbsent(rows + "x" + cols, shape -> {
+            Path file = fileFor(rows, cols);
+            if (!Files.exists(file)) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(load(file));
+            }
+            catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring pattern database " + file + ": " + e.getMessage());
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    /**
+     * Gets the file the database of a board shape is kept in, under the folder named by
+     * the puzzles.pdb property, pdb by default
+     * @param rows number of rows of the board
+     * @param cols number of columns of the board
+     * @return path of the file
+     */
+    public static Path fileFor(int rows, int cols) {
+        return Path.of(System.getProperty("puzzles.pdb", "pdb")).resolve("slide-" + rows + "x" + cols + ".pdb");
+    }
+
+    /**
+     * Memory maps a database file
+     * @param file The file written by build
+     * @return the database
+     * @throws IOException if the file can't be read or isn't a database
+     */
+    public static SlidePatternDatabase load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.getInt() != MAGIC || data.getInt() != VERSION) {
+                throw new IOException(file + " isn't a slide pattern database");
+            }
+            int rows = data.getInt();
+            int cols = data.getInt();
+            int[][] groups = new int[data.getInt()][];
+            for (int g = 0; g < groups.length; g++) {
+                groups[g] = new int[data.getInt()];
+                for (int j = 0; j < groups[g].length; j++) {
+                    groups[g][j] = data.getInt();
+                }
+            }
+            ByteBuffer[] tables = new ByteBuffer[groups.length];
+            int offset = data.position();
+            for (int g = 0; g < groups.length; g++) {
+                int length = (int) ((placements(rows * cols, groups[g].length) + 1) / 2);
+                if (offset + length > data.limit()) {
+                    throw new IOException(file + " is cut short");
+                }
+                tables[g] = data.slice(offset, length);
+                offset += length;
+            }
+            return new SlidePatternDatabase(rows, cols, groups, tables);
+        }
+    }
+
+    /**
+     * Estimates the moves left from where each number is
+     * @param cellOfRank The cell each number is in, by the rank of the number
+     * @return lower bound on the number of moves to the solution
+     */
+    public int estimate(int[] cellOfRank) {
+        int total = 0;
+        for (int g = 0; g < groups.length; g++) {
+            int[] group = groups[g];
+            int[] weight = weights[g];
+            long used = 0;
+            int index = 0;
+            for (int j = 0; j < group.length; j++) {
+                int cell = cellOfRank[group[j]];
+                total += manhattan(cell, group[j], cols);
+                index += (cell - Long.bitCount(used & ((1L << cell) - 1))) * weight[j];
+                used |= 1L << cell;
+            }
+            total += 2 * nibble(tables[g], index);
+        }
+        return total;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Builds the database of a board shape and writes it to a file
+     * @param rows number of rows of the board
+     * @param cols number of columns of the board
+     * @param file Where the database is written
+     * @throws IOException if the file can't be written
+     */
+    public static void build(int rows, int cols, Path file) throws IOException {
+        int size = rows * cols;
+        if (size < 2 || size > Long.SIZE) {
+            throw new IllegalArgumentException("Pattern databases need a board of 2 to " + Long.SIZE + " cells");
+        }
+        int[][] groups = partition(size);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+
+        // Written next to the file and moved over it at the end, so a failed build never leaves half a database
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        try (OutputStream stream = Files.newOutputStream(partial);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows);
+            out.writeInt(cols);
+            out.writeInt(groups.length);
+            for (int[] group: groups) {
+                out.writeInt(group.length);
+                for (int rank: group) {
+                    out.writeInt(rank);
+                }
+            }
+            for (int[] group: groups) {
+                out.write(buildTable(rows, cols, group));
+            }
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+        LOADED.remove(rows + "x" + cols);
+    }
+
+    /**
+     * Splits the ranks into groups in order, each group as big as MAX_PLACEMENTS allows
+     * @param size number of cells of the board
+     * @return the ranks of each group
+     */
+    static int[][] partition(int size) {
+        int numbers = size - 1;
+        int most = 1;
+        while (most < numbers && placements(size, most + 1) <= MAX_PLACEMENTS) {
+            most++;
+        }
+        List<int[]> groups = new ArrayList<>();
+        for (int first = 0; first < numbers; first += most) {
+            int[] group = new int[Math.min(most, numbers - first)];
+            for (int j = 0; j < group.length; j++) {
+                group[j] = first + j;
+            }
+            groups.add(group);
+        }
+        return groups.toArray(new int[0][]);
+    }
+
+    /**
+     * Works out the table of one group with a breadth first search back from the solution.
+     * A search state is a placement of the group together with the empty cell. Moving the
+     * empty cell onto a number outside the group costs nothing, so the empty cell first
+     * floods every cell it reaches for free before the next layer of moves is made.
+     * @return the nibble table of the group
+     */
+    private static byte[] buildTable(int rows, int cols, int[] group) {
+        int size = rows * cols;
+        int k = group.length;
+        int count = (int) placements(size, k);
+        int[] weight = weights(size, k);
+        int[][] neighbors = neighbors(rows, cols);
+
+        byte[] table = new byte[(count + 1) / 2];
+        long[] placed = new long[(count + 63) / 64];
+        long[] visited = new long[(int) (((long) count * size + 63) / 64)];
+
+        int[] cells = group.clone();
+        IntList layer = new IntList();
+        IntList next = new IntList();
+        next.add(index(cells, weight) * size + size - 1);
+        for (int moves = 0; next.size() > 0; moves++) {
+            IntList swap = layer;
+            layer = next;
+            next = swap;
+            next.clear();
+
+            // Only states that weren't reached for fewer moves start this layer
+            int kept = 0;
+            for (int i = 0; i < layer.size(); i++) {
+                int state = layer.get(i);
+                if (!test(visited, state)) {
+                    set(visited, state);
+                    layer.set(kept++, state);
+                }
+            }
+            layer.truncate(kept);
+
+            for (int i = 0; i < layer.size(); i++) {
+                int state = layer.get(i);
+                int placement = state / size;
+                int empty = state % size;
+                long used = cellsOf(placement, weight, size, cells);
+                if (!test(placed, placement)) {
+                    set(placed, placement);
+                    int distance = 0;
+                    for (int j = 0; j < k; j++) {
+                        distance += manhattan(cells[j], group[j], cols);
+                    }
+                    setNibble(table, placement, Math.min(NIBBLE_MAX, (moves - distance) / 2));
+                }
+
+                for (int cell: neighbors[empty]) {
+                    if ((used >>> cell & 1L) == 0) {
+                        // A number outside the group moves, still the same layer
+                        int free = placement * size + cell;
+                        if (!test(visited, free)) {
+                            set(visited, free);
+                            layer.add(free);
+                        }
+                    }
+                    else {
+                        // A number of the group moves into the empty cell
+                        int j = 0;
+                        while (cells[j] != cell) {
+                            j++;
+                        }
+                        cells[j] = empty;
+                        next.add(index(cells, weight) * size + cell);
+                        cells[j] = cell;
+                    }
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Number of ways to place some numbers on different cells
+     */
+    static long placements(int size, int k) {
+        long count = 1;
+        for (int i = 0; i < k; i++) {
+            count *= size - i;
+        }
+        return count;
+    }
+
+    /**
+     * Weights of the positions of a group in the index of a placement, so that the cells
+     * left for each position make a mixed radix number
+     */
+    private static int[] weights(int size, int k) {
+        int[] weight = new int[k];
+        for (int j = 0; j < k; j++) {
+            weight[j] = (int) placements(size - j - 1, k - j - 1);
+        }
+        return weight;
+    }
+
+    /**
+     * Gets the index of a placement
+     * @param cells The cell of each number of the group
+     */
+    private static int index(int[] cells, int[] weight) {
+        long used = 0;
+        int index = 0;
+        for (int j = 0; j < cells.length; j++) {
+            index += (cells[j] - Long.bitCount(used & ((1L << cells[j]) - 1))) * weight[j];
+            used |= 1L << cells[j];
+        }
+        return index;
+    }
+
+    /**
+     * Turns the index of a placement back into the cell of each number
+     * @param cells Filled with the cell of each number of the group
+     * @return the cells that are used
+     */
+    private static long cellsOf(int index, int[] weight, int size, int[] cells) {
+        long used = 0;
+        for (int j = 0; j < cells.length; j++) {
+            int digit = index / weight[j];
+            index %= weight[j];
+            int cell = 0;
+            while (true) {
+                if ((used >>> cell & 1L) == 0) {
+                    if (digit == 0) {
+                        break;
+                    }
+                    digit--;
+                }
+                cell++;
+            }
+            cells[j] = cell;
+            used |= 1L << cell;
+        }
+        return used;
+    }
+
+    private static int[][] neighbors(int rows, int cols) {
+        int[][] neighbors = new int[rows * cols][];
+        for (int cell = 0; cell < rows * cols; cell++) {
+            int row = cell / cols;
+            int col = cell % cols;
+            int[] around = new int[4];
+            int n = 0;
+            if (row > 0) {
+                around[n++] = cell - cols;
+            }
+            if (row < rows - 1) {
+                around[n++] = cell + cols;
+            }
+            if (col > 0) {
+                around[n++] = cell - 1;
+            }
+            if (col < cols - 1) {
+                around[n++] = cell + 1;
+            }
+            neighbors[cell] = Arrays.copyOf(around, n);
+        }
+        return neighbors;
+    }
+
+    private static int manhattan(int cell, int goal, int cols) {
+        return Math.abs(cell / cols - goal / cols) + Math.abs(cell % cols - goal % cols);
+    }
+
+    private static int nibble(ByteBuffer table, int index) {
+        return table.get(index >>> 1) >>> ((index & 1) * 4) & NIBBLE_MAX;
+    }
+
+    private static void setNibble(byte[] table, int index, int value) {
+        table[index >>> 1] |= (byte) (value << ((index & 1) * 4));
+    }
+
+    private static boolean test(long[] bits, int index) {
+        return (bits[index >>> 6] >>> index & 1L) != 0;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Growable list of ints, the layers of the search are far too big for boxed lists
+     */
+    private static final class IntList {
+        private int[] values = new int[1024];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, (int) Math.min(Integer.MAX_VALUE - 8, values.length * 2L));
+            }
+            values[size++] = value;
+        }
+
+        int get(int i) {
+            return values[i];
+        }
+
+        void set(int i, int value) {
+            values[i] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void truncate(int size) {
+            this.size = size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
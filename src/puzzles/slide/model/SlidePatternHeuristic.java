@@ -0,0 +1,89 @@
+package puzzles.slide.model;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Heuristic;
+
+import java.util.Arrays;
+
+/**
+ * Pattern database estimate for the slide puzzle. Looks up every group of numbers in
+ * the SlidePatternDatabase of the board shape and adds them up.
+ */
+public class SlidePatternHeuristic implements Heuristic {
+    /** Tables of the board shape */
+    private final SlidePatternDatabase database;
+    /** Rank of each number on the board, which is the cell it ends up in */
+    private final int[] rankOf;
+
+    /**
+     * Builds the ranks of the numbers from any configuration of the puzzle
+     * @param config Configuration holding the numbers of the puzzle
+     * @param database Tables of the board shape
+     */
+    public SlidePatternHeuristic(SlideConfig config, SlidePatternDatabase database) {
+        if (database.getRows() != config.getROWS() || database.getCols() != config.getCOLS()) {
+            throw new IllegalArgumentException("The pattern database is for another board shape");
+        }
+        this.database = database;
+
+        // The solved board has the numbers in order, so the rank is the place of the number in sorted order
+        int[] numbers = new int[config.getROWS()*config.getCOLS()-1];
+        int i = 0;
+        for (int row=0; row<config.getROWS(); row++) {
+            for (int col=0; col<config.getCOLS(); col++) {
+                if (config.getNumber(row, col) != 0) {
+                    numbers[i++] = config.getNumber(row, col);
+                }
+            }
+        }
+        Arrays.sort(numbers);
+
+        int largest = numbers.length == 0 ? 0 : numbers[numbers.length-1];
+        this.rankOf = new int[largest+1];
+        for (i=0; i<numbers.length; i++) {
+            this.rankOf[numbers[i]] = i;
+        }
+    }
+
+    /**
+     * Gets the best estimate there is for a puzzle: the exact distance on boards small
+     * enough for an endgame database, the pattern databases of the board shape once they
+     * are built, Manhattan distance and linear conflicts until then. Every board reachable
+     * from one that can't be solved can't be solved either, so those are all UNSOLVABLE.
+     * The estimates give each number one goal cell, so a puzzle with a number on the
+     * board twice gets an estimate of 0, which is always safe.
+     * @param config Configuration holding the numbers of the puzzle
+     * @return the estimate
+     */
+    public static Heuristic forPuzzle(SlideConfig config) {
+        if (!config.isSolvable()) {
+            return other -> Heuristic.UNSOLVABLE;
+        }
+        if (!config.hasDistinctNumbers()) {
+            return other -> 0;
+        }
+        SlideEndgameDatabase endgame = SlideEndgameDatabase.forPuzzle(config);
+        if (endgame != null) {
+            return other -> {
+                int distance = endgame.distance((SlideConfig) other);
+                return distance == SlideEndgameDatabase.UNSOLVABLE ? Heuristic.UNSOLVABLE : distance;
+            };
+        }
+        SlidePatternDatabase database = SlidePatternDatabase.forShape(config.getROWS(), config.getCOLS());
+        return database == null ? new SlideHeuristic(config) : new SlidePatternHeuristic(config, database);
+    }
+
+    @Override
+    public int estimate(Configuration config) {
+        SlideConfig slide = (SlideConfig) config;
+        int cols = slide.getCOLS();
+        int[] cellOfRank = new int[slide.getROWS()*cols-1];
+        for (int cell=0; cell<slide.getROWS()*cols; cell++) {
+            int n = slide.getNumber(cell / cols, cell % cols);
+            if (n != 0) {
+                cellOfRank[this.rankOf[n]] = cell;
+            }
+        }
+        return database.estimate(cellOfRank);
+    }
+}
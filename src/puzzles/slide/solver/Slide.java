@@ -1,42 +1,95 @@
 package puzzles.slide.solver;
+import puzzles.common.solver.Checkpoints;
 import puzzles.common.solver.Configuration;
+import puzzles.common.solver.InformedSolver;
 import puzzles.common.solver.Solver;
+import puzzles.common.solver.SolverResult;
+import puzzles.common.solver.SolverStats;
 import puzzles.slide.model.SlideConfig;
+import puzzles.slide.model.SlideEndgameDatabase;
+import puzzles.slide.model.SlidePatternHeuristic;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.Collection;
 
 public class Slide {
     public static void main(String[] args) throws IOException {
-        if (args.length != 1) {
-            System.out.println("Usage: java Slide filename");
+        if (args.length < 1 || args.length > 2 || (args.length == 2 && !args[1].equals("astar") && !args[1].equals("idastar") && !args[1].equals("frontier"))) {
+            System.out.println("Usage: java Slide filename [astar|idastar|frontier]");
         } else {
+            PrintWriter out = new PrintWriter(System.out);
+            solve(args[0], args.length == 2 ? args[1] : "bfs", out);
+            out.flush();
+        }
+    }
 
-            // Pass filename to constructor to read initial board
-            String fileName = args[0];
-            SlideConfig init = new SlideConfig(fileName);
-            System.out.println("File: " + fileName);
-            System.out.println(init);
+    /**
+     * Solves a slide file and writes the answer
+     * @param fileName The file of the puzzle
+     * @param out Where the answer is written
+     * @return the result of the solve
+     * @throws IOException if the file can't be read
+     */
+    public static SolverResult solve(String fileName, PrintWriter out) throws IOException {
+        return solve(fileName, "bfs", out);
+    }
 
-            Solver brain = new Solver();
-            Iterable<Configuration> answer = brain.solve(init);
+    /**
+     * Solves a slide file with a chosen search and writes the answer. The informed
+     * searches use the pattern databases of the board shape when they have been built,
+     * and the frontier search only keeps the last few layers of a breadth first search.
+     * The informed searches don't search boards their endgame database says can't be solved.
+     * The breadth first search writes checkpoints when the puzzles.checkpoint property is set.
+     * @param fileName The file of the puzzle
+     * @param search bfs, astar, idastar or frontier
+     * @param out Where the answer is written
+     * @return the result of the solve
+     * @throws IOException if the file can't be read
+     */
+    public static SolverResult solve(String fileName, String search, PrintWriter out) throws IOException {
 
-            // Checks if there is no solution
-            // Else, print steps to goal
-            if (answer == null) {
-                System.out.println("No solution");
-            }
-            else {
+        // Pass filename to constructor to read initial board
+        SlideConfig init = new SlideConfig(fileName);
+        out.println("File: " + fileName);
+        out.println(init);
+
+        Checkpoints checkpoints = Checkpoints.forPuzzle(fileName);
+        boolean informed = search.equals("astar") || search.equals("idastar");
+        SlideEndgameDatabase endgame = informed ? SlideEndgameDatabase.forPuzzle(init) : null;
+        SolverResult result;
+        if (endgame != null && endgame.distance(init) == SlideEndgameDatabase.UNSOLVABLE) {
+            SolverStats stats = new SolverStats();
+            stats.finish();
+            result = new SolverResult(null, stats);
+        } else if (search.equals("astar")) {
+            result = new InformedSolver().aStar(init, SlidePatternHeuristic.forPuzzle(init));
+        } else if (search.equals("idastar")) {
+            result = new InformedSolver().idaStar(init, SlidePatternHeuristic.forPuzzle(init));
+        } else if (search.equals("frontier")) {
+            result = new Solver().solveFrontier(init);
+        } else if (checkpoints != null) {
+            result = new Solver().solveCheckpointed(init, checkpoints);
+        } else {
+            result = new Solver().solve(init);
+        }
+        Iterable<Configuration> answer = result.getPath();
 
-                System.out.println("Total configs: " + brain.getTotalConfigs());
-                System.out.println("Unique configs: "+ brain.getUniqueConfigs());
+        // Checks if there is no solution
+        // Else, print steps to goal
+        if (answer == null) {
+            out.println("No solution");
+        }
+        else {
 
-                int i = 0;
-                for (Configuration s : answer) {
-                    System.out.println("Step " + i + ": \n" + s);
-                    i++;
-                }
-            }
+            out.println("Total configs: " + result.getStats().getGenerated());
+            out.println("Unique configs: "+ result.getStats().getUnique());
 
+            int i = 0;
+            for (Configuration s : answer) {
+                out.println("Step " + i + ": \n" + s);
+                i++;
+            }
         }
+        return result;
     }
 }
@@ -0,0 +1,34 @@
+package puzzles.slide.solver;
+
+import puzzles.slide.model.SlideEndgameDatabase;
+import puzzles.slide.model.SlidePatternDatabase;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Builds the pattern databases of a slide board shape ahead of time, which the informed
+ * searches then pick up on their own. Shapes small enough get their endgame database too.
+ */
+public class SlidePatterns {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java SlidePatterns rows cols [file]");
+        } else {
+            int rows = Integer.parseInt(args[0]);
+            int cols = Integer.parseInt(args[1]);
+            Path file = args.length > 2 ? Path.of(args[2]) : SlidePatternDatabase.fileFor(rows, cols);
+
+            long start = System.nanoTime();
+            SlidePatternDatabase.build(rows, cols, file);
+            System.out.printf("Built %s in %.1f s%n", file, (System.nanoTime() - start) / 1e9);
+
+            if (rows * cols <= SlideEndgameDatabase.MAX_CELLS) {
+                Path endgame = SlideEndgameDatabase.fileFor(rows, cols);
+                start = System.nanoTime();
+                SlideEndgameDatabase.build(rows, cols, endgame);
+                System.out.printf("Built %s in %.1f s%n", endgame, (System.nanoTime() - start) / 1e9);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package puzzles.strings;
+
+import puzzles.common.solver.Configuration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Configuration of a single letter of a strings puzzle, which changes independently
+ * of the other letters
+ */
+class LetterConfig implements Configuration {
+    /** Goal of a letter that can't reach the end */
+    static final int NO_GOAL = -1;
+    /** Letter that the configuration is on */
+    private final char current;
+    /** Letter that we want to get to, NO_GOAL if there is none */
+    private final int goal;
+
+    /**
+     * Constructor for a letter configuration
+     * @param current Letter that the configuration is on
+     * @param goal Letter that we want to get to, NO_GOAL if there is none
+     */
+    LetterConfig(char current, int goal){
+        this.current = current;
+        this.goal = goal;
+    }
+
+    char getLetter(){
+        return current;
+    }
+
+    @Override
+    /**
+     * Checks to see if the letter is the one we want
+     * @return T/F value for if config is a solution
+     */
+    public boolean isSolution() {
+        return current == goal;
+    }
+
+    @Override
+    /**
+     * Moves the letter forward and backward, in the same order as the strings config
+     * @return collection of the two neighbors
+     */
+    public Collection<Configuration> getNeighbors() {
+        List<Configuration> lst = new ArrayList<>(2);
+        lst.add(new LetterConfig(StringsConfig.forward(current), goal));
+        lst.add(new LetterConfig(StringsConfig.backward(current), goal));
+        return lst;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof LetterConfig otherL && this.current == otherL.current && this.goal == otherL.goal;
+    }
+
+    @Override
+    public int hashCode() {
+        return current;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(current);
+    }
+}
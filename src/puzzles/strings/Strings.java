@@ -2,7 +2,9 @@ package puzzles.strings;
 
 import puzzles.common.solver.Configuration;
 import puzzles.common.solver.Solver;
+import puzzles.common.solver.SolverResult;
 
+import java.io.PrintWriter;
 import java.util.List;
 
 /**
@@ -14,21 +16,36 @@ public class Strings {
         if (args.length < 2) {
             System.out.println(("Usage: java Strings start finish"));
         } else {
-            StringsConfig sc = new StringsConfig(args[0], args[1]);
-            System.out.println("Start: " + args[0] + ", End: " + args[1]);
-            Solver solver = new Solver();
+            PrintWriter out = new PrintWriter(System.out);
+            solve(args[0], args[1], out);
+            out.flush();
+        }
+    }
 
-            List<Configuration> solution = solver.solve(sc);
-            if (solution != null){
-                System.out.println("Total configs: " + solver.getTotalConfigs());
-                System.out.println("Unique configs: " + solver.getUniqueConfigs());
-                for (int i = 0; i < solution.size(); i++){
-                    System.out.println("Step " + i + ": " + solution.get(i));
-                }
-            }
-            else{
-                System.out.println("No solution!");
+    /**
+     * Solves a strings puzzle and writes the answer
+     * @param start Start string
+     * @param end End string
+     * @param out Where the answer is written
+     * @return the result of the solve
+     */
+    public static SolverResult solve(String start, String end, PrintWriter out) {
+        StringsConfig sc = new StringsConfig(start, end);
+        out.println("Start: " + start + ", End: " + end);
+        Solver solver = new Solver();
+
+        SolverResult result = solver.solve(sc);
+        List<Configuration> solution = result.getPath();
+        if (solution != null){
+            out.println("Total configs: " + solver.getTotalConfigs());
+            out.println("Unique configs: " + solver.getUniqueConfigs());
+            for (int i = 0; i < solution.size(); i++){
+                out.println("Step " + i + ": " + solution.get(i));
             }
         }
+        else{
+            out.println("No solution!");
+        }
+        return result;
     }
 }
@@ -1,21 +1,26 @@
 package puzzles.strings;
 
 import puzzles.common.solver.Configuration;
+import puzzles.common.solver.DecomposableConfiguration;
+import puzzles.common.solver.EncodableConfiguration;
+import puzzles.common.solver.ReversibleConfiguration;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * Class that is responsible for creating and checking all of the different neighbors for the string configurations
  * @Author Jared Hugo
  */
-public class StringsConfig implements Configuration {
-    /** Start string that will be transformed */
-    private static String start;
-    /** End string that we want to get to */
-    private static String end;
+public class StringsConfig implements ReversibleConfiguration, EncodableConfiguration, DecomposableConfiguration {
+    /** Start string that will be transformed, shared by every configuration of the puzzle */
+    private final String start;
+    /** End string that we want to get to, shared by every configuration of the puzzle */
+    private final String end;
     /** Current string that the configuration is on */
-    private String current;
+    private final String current;
     @Override
     /**
      * Checks to see if configuration is the solution
@@ -31,9 +36,19 @@ public class StringsConfig implements Configuration {
      * @param initEnd End string
      */
     public StringsConfig(String initStart, String initEnd){
-        start = initStart;
-        end = initEnd;
-        this.current = start;
+        this(initStart, initEnd, initStart);
+    }
+
+    /**
+     * Constructor for a string configuration sitting on a given string of a puzzle
+     * @param start Start string of the puzzle
+     * @param end End string of the puzzle
+     * @param current String that the configuration is on
+     */
+    private StringsConfig(String start, String end, String current){
+        this.start = start;
+        this.end = end;
+        this.current = current;
     }
 
     /**
@@ -45,53 +60,172 @@ public class StringsConfig implements Configuration {
     public StringsConfig(StringsConfig copy, int index, String direction){
         StringBuilder sb = new StringBuilder(copy.current);
         if (direction.equals("Forward")) {
-            if (sb.charAt(index) == 'A') {
-                sb.setCharAt(index, 'B');
-            } else if (sb.charAt(index) == 'Z') {
-                sb.setCharAt(index, 'A');
-            } else {
-                int asciiValue = (int) sb.charAt(index);
-                ++asciiValue;
-                char newChar = (char)asciiValue;
-                sb.setCharAt(index, newChar);
-            }
+            sb.setCharAt(index, forward(sb.charAt(index)));
         }
         else{
-            if (sb.charAt(index) == 'A') {
-                sb.setCharAt(index, 'Z');
-            } else if (sb.charAt(index) == 'Z') {
-                sb.setCharAt(index, 'Y');
-            } else {
-                int asciiValue = (int) sb.charAt(index);
-                --asciiValue;
-                char newChar = (char)asciiValue;
-                sb.setCharAt(index, newChar);
-            }
+            sb.setCharAt(index, backward(sb.charAt(index)));
         }
         String newString = sb.toString();
+        this.start = copy.start;
+        this.end = copy.end;
         this.current = newString;
 
     }
+
+    /**
+     * Moves a letter forward, Z wraps around to A
+     * @param c letter to move
+     * @return the next letter
+     */
+    static char forward(char c){
+        if (c == 'A') {
+            return 'B';
+        } else if (c == 'Z') {
+            return 'A';
+        }
+        return (char) (c + 1);
+    }
+
+    /**
+     * Moves a letter backward, A wraps around to Z
+     * @param c letter to move
+     * @return the letter before
+     */
+    static char backward(char c){
+        if (c == 'A') {
+            return 'Z';
+        } else if (c == 'Z') {
+            return 'Y';
+        }
+        return (char) (c - 1);
+    }
+
+    /**
+     * Checks to see if a letter is the one the end string has at the same spot
+     */
+    private boolean matchesEnd(char c, int i){
+        return i < end.length() && end.charAt(i) == c;
+    }
+
+    /**
+     * Reads a character of a key
+     */
+    private static char charAt(byte[] key, int offset, int i){
+        return (char) ((key[offset + 2 * i] & 0xFF) | (key[offset + 2 * i + 1] & 0xFF) << 8);
+    }
+
+    /**
+     * Writes a character of a key
+     */
+    private static void setCharAt(byte[] key, int offset, int i, char c){
+        key[offset + 2 * i] = (byte) c;
+        key[offset + 2 * i + 1] = (byte) (c >>> 8);
+    }
+
     @Override
     /**
-     * Creates neighbors for the current string
-     * @return a collection of all of the string configurations
+     * Writes the keys of every string one letter forward or backward from a key
+     * @return number of neighbors
      */
-    public Collection<Configuration> getNeighbors() {
-        LinkedList<Configuration> lst = new LinkedList<>();
-        for (int i = 0; i < start.length(); i++){
+    public int forEachNeighborKey(byte[] key, int offset, byte[] scratch, NeighborVisitor visitor) {
+        int length = start.length();
+        System.arraycopy(key, offset, scratch, 0, 2 * length);
+
+        // Only the letter that changes can change how far the string is from the end
+        // Letters the end has past the length of the string can never match
+        int wrong = Math.max(0, end.length() - length);
+        for (int i = 0; i < length; i++){
+            if (!matchesEnd(charAt(key, offset, i), i)){
+                wrong++;
+            }
+        }
+
+        int count = 0;
+        for (int i = 0; i < length; i++){
+            char c = charAt(key, offset, i);
+            int others = matchesEnd(c, i) ? wrong : wrong - 1;
             for (int j = 0; j < 2; j++){
-                if (j == 0){
-                    lst.add(new StringsConfig(this, i, "Forward"));
-                }
-                else{
-                    lst.add(new StringsConfig(this, i, "Backward"));
+                char next = j == 0 ? forward(c) : backward(c);
+                setCharAt(scratch, 0, i, next);
+                count++;
+                if (!visitor.visit(scratch, 0, others == 0 && matchesEnd(next, i))){
+                    return count;
                 }
             }
+            setCharAt(scratch, 0, i, c);
         }
+        return count;
+    }
+
+    @Override
+    /**
+     * Splits the string into its letters, each letter changes without touching the others
+     * @return a letter configuration for every letter of the string
+     */
+    public List<Configuration> getComponents() {
+        // Strings of another length can never become the end, so none of the letters get a goal
+        boolean sameLength = current.length() == end.length();
+        List<Configuration> lst = new ArrayList<>(current.length());
+        for (int i = 0; i < current.length(); i++){
+            lst.add(new LetterConfig(current.charAt(i), sameLength ? end.charAt(i) : LetterConfig.NO_GOAL));
+        }
+        return lst;
+    }
+
+    @Override
+    /**
+     * Makes the string with one letter changed
+     * @return the string configuration with the letter changed
+     */
+    public DecomposableConfiguration withComponent(int index, Configuration component) {
+        char[] chars = current.toCharArray();
+        chars[index] = ((LetterConfig) component).getLetter();
+        return new StringsConfig(start, end, new String(chars));
+    }
+
+    @Override
+    /**
+     * Gets the goal configuration, which is just the end string
+     * @return a collection holding the single goal configuration
+     */
+    public Collection<Configuration> getGoals() {
+        LinkedList<Configuration> lst = new LinkedList<>();
+        lst.add(new StringsConfig(start, end, end));
         return lst;
     }
 
+    @Override
+    /**
+     * Gets the length of the key, two bytes for every character
+     * @return number of bytes in a key
+     */
+    public int getKeyLength() {
+        return 2 * start.length();
+    }
+
+    @Override
+    /**
+     * Writes the characters of the current string into the key
+     */
+    public void writeKey(byte[] key, int offset) {
+        for (int i = 0; i < current.length(); i++){
+            setCharAt(key, offset, i, current.charAt(i));
+        }
+    }
+
+    @Override
+    /**
+     * Rebuilds a string configuration from a key
+     * @return the string configuration of the key
+     */
+    public Configuration fromKey(byte[] key, int offset) {
+        char[] chars = new char[start.length()];
+        for (int i = 0; i < chars.length; i++){
+            chars[i] = charAt(key, offset, i);
+        }
+        return new StringsConfig(start, end, new String(chars));
+    }
+
     @Override
     /**
      * Checks to see if 2 strings are equal
@@ -101,7 +235,7 @@ public class StringsConfig implements Configuration {
         boolean result = false;
         if (other instanceof StringsConfig){
             StringsConfig otherC = (StringsConfig) other;
-            if (this.current.equals(otherC.current)){
+            if (this.current.equals(otherC.current) && this.end.equals(otherC.end)){
                 result = true;
             }
         }
@@ -0,0 +1,55 @@
+package puzzles.strings;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Heuristic;
+
+/**
+ * Class that estimates the moves left for a string configuration
+ * Each move changes one letter by one step around the alphabet, so every position needs at least
+ * the shorter way around the circle to its end letter
+ */
+public class StringsHeuristic implements Heuristic {
+    /** Number of letters in the alphabet the strings wrap around */
+    private static final int LETTERS = 26;
+    /** End string that we want to get to */
+    private final String end;
+
+    /**
+     * Constructor for the strings heuristic
+     * @param end End string
+     */
+    public StringsHeuristic(String end){
+        this.end = end;
+    }
+
+    @Override
+    /**
+     * Adds up the circular letter distance of every position
+     * @return lower bound on the moves left
+     */
+    public int estimate(Configuration config) {
+        String current = config.toString();
+        int distance = 0;
+        for (int i = 0; i < current.length() && i < end.length(); i++){
+            char from = current.charAt(i);
+            char to = end.charAt(i);
+            int steps = Math.abs(from - to);
+            if (isLetter(from) && isLetter(to)){
+                distance += Math.min(steps, LETTERS - steps);
+            }
+            else if (!isLetter(from) && !isLetter(to)){
+                distance += steps;
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Checks to see if a character is one of the letters that wrap around
+     * @param c character being checked
+     * @return T/F value for if the character is from A to Z
+     */
+    private static boolean isLetter(char c){
+        return c >= 'A' && c <= 'Z';
+    }
+}